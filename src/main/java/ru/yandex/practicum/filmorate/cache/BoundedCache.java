@@ -0,0 +1,225 @@
+package ru.yandex.practicum.filmorate.cache;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToLongBiFunction;
+
+public class BoundedCache<K, V> {
+    private final long maxWeight;
+    private final ToLongBiFunction<K, V> weigher;
+    private final BiConsumer<K, V> removalListener;
+    private final BiConsumer<K, V> storeListener;
+
+    private final LinkedHashMap<K, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<K, CompletableFuture<V>> loading = new HashMap<>();
+    private long weight;
+    private long hits;
+    private long misses;
+    private long coalescedLoads;
+    private long loadFailures;
+    private long evictions;
+    private long invalidations;
+    private long writeEpoch;
+
+    public BoundedCache(long maxWeight, ToLongBiFunction<K, V> weigher, BiConsumer<K, V> removalListener) {
+        this(maxWeight, weigher, removalListener, (key, value) -> {
+        });
+    }
+
+    public BoundedCache(long maxWeight, ToLongBiFunction<K, V> weigher, BiConsumer<K, V> removalListener,
+                        BiConsumer<K, V> storeListener) {
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+        this.removalListener = removalListener;
+        this.storeListener = storeListener;
+    }
+
+    public V get(K key, Function<K, V> loader) {
+        CompletableFuture<V> future;
+        boolean owner = false;
+        synchronized (this) {
+            Entry<V> entry = entries.get(key);
+            if (entry != null) {
+                hits++;
+                return entry.value();
+            }
+            future = loading.get(key);
+            if (future != null) {
+                coalescedLoads++;
+            } else {
+                misses++;
+                future = new CompletableFuture<>();
+                loading.put(key, future);
+                owner = true;
+            }
+        }
+        if (owner) {
+            return load(key, loader, future);
+        }
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    public Map<K, V> getAll(Collection<K> keys, Function<Set<K>, Map<K, V>> loader) {
+        Map<K, V> found = new LinkedHashMap<>();
+        Set<K> missing = new LinkedHashSet<>();
+        long epochBefore;
+        synchronized (this) {
+            for (K key : keys) {
+                Entry<V> entry = entries.get(key);
+                if (entry != null) {
+                    hits++;
+                    found.put(key, entry.value());
+                } else if (missing.add(key)) {
+                    misses++;
+                }
+            }
+            epochBefore = writeEpoch;
+        }
+        if (missing.isEmpty()) {
+            return found;
+        }
+        Map<K, V> loaded;
+        try {
+            loaded = loader.apply(missing);
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                loadFailures++;
+            }
+            throw e;
+        }
+        List<Map.Entry<K, V>> evicted = new ArrayList<>();
+        synchronized (this) {
+            boolean stale = writeEpoch != epochBefore;
+            loaded.forEach((key, value) -> {
+                if (!stale && !loading.containsKey(key) && !entries.containsKey(key)) {
+                    store(key, value);
+                }
+            });
+            evictOverweight(evicted);
+        }
+        notifyRemoved(evicted);
+        found.putAll(loaded);
+        return found;
+    }
+
+    public void put(K key, V value) {
+        List<Map.Entry<K, V>> removed = new ArrayList<>();
+        synchronized (this) {
+            writeEpoch++;
+            loading.remove(key);
+            Entry<V> previous = entries.remove(key);
+            if (previous != null) {
+                weight -= previous.weight();
+                removed.add(Map.entry(key, previous.value()));
+            }
+            store(key, value);
+            evictOverweight(removed);
+        }
+        notifyRemoved(removed);
+    }
+
+    public void invalidate(K key) {
+        List<Map.Entry<K, V>> removed = new ArrayList<>(1);
+        synchronized (this) {
+            writeEpoch++;
+            loading.remove(key);
+            Entry<V> entry = entries.remove(key);
+            if (entry != null) {
+                weight -= entry.weight();
+                invalidations++;
+                removed.add(Map.entry(key, entry.value()));
+            }
+        }
+        notifyRemoved(removed);
+    }
+
+    public void invalidateIf(Predicate<K> predicate) {
+        List<Map.Entry<K, V>> removed = new ArrayList<>();
+        synchronized (this) {
+            writeEpoch++;
+            loading.keySet().removeIf(predicate);
+            Iterator<Map.Entry<K, Entry<V>>> iterator = entries.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<K, Entry<V>> entry = iterator.next();
+                if (predicate.test(entry.getKey())) {
+                    iterator.remove();
+                    weight -= entry.getValue().weight();
+                    invalidations++;
+                    removed.add(Map.entry(entry.getKey(), entry.getValue().value()));
+                }
+            }
+        }
+        notifyRemoved(removed);
+    }
+
+    public void invalidateAll() {
+        invalidateIf(key -> true);
+    }
+
+    public synchronized CacheStats stats() {
+        return new CacheStats(hits, misses, coalescedLoads, loadFailures, evictions, invalidations,
+                entries.size(), weight, maxWeight);
+    }
+
+    private V load(K key, Function<K, V> loader, CompletableFuture<V> future) {
+        V value;
+        try {
+            value = loader.apply(key);
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                loading.remove(key, future);
+                loadFailures++;
+            }
+            future.completeExceptionally(e);
+            throw e;
+        }
+        List<Map.Entry<K, V>> evicted = new ArrayList<>();
+        synchronized (this) {
+            if (loading.remove(key, future)) {
+                store(key, value);
+                evictOverweight(evicted);
+            }
+        }
+        future.complete(value);
+        notifyRemoved(evicted);
+        return value;
+    }
+
+    private void store(K key, V value) {
+        long entryWeight = weigher.applyAsLong(key, value);
+        if (entryWeight <= maxWeight) {
+            entries.put(key, new Entry<>(value, entryWeight));
+            weight += entryWeight;
+            storeListener.accept(key, value);
+        }
+    }
+
+    private void evictOverweight(List<Map.Entry<K, V>> evicted) {
+        Iterator<Map.Entry<K, Entry<V>>> iterator = entries.entrySet().iterator();
+        while (weight > maxWeight && iterator.hasNext()) {
+            Map.Entry<K, Entry<V>> eldest = iterator.next();
+            iterator.remove();
+            weight -= eldest.getValue().weight();
+            evictions++;
+            evicted.add(Map.entry(eldest.getKey(), eldest.getValue().value()));
+        }
+    }
+
+    private void notifyRemoved(List<Map.Entry<K, V>> removed) {
+        removed.forEach(entry -> removalListener.accept(entry.getKey(), entry.getValue()));
+    }
+
+    private record Entry<V>(V value, long weight) {
+    }
+}
@@ -0,0 +1,23 @@
+package ru.yandex.practicum.filmorate.cache;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Component
+public class CacheRegistry {
+    private final Map<String, BoundedCache<?, ?>> caches = new ConcurrentHashMap<>();
+
+    public <K, V> BoundedCache<K, V> register(String name, BoundedCache<K, V> cache) {
+        caches.put(name, cache);
+        return cache;
+    }
+
+    public Map<String, CacheStats> getStats() {
+        Map<String, CacheStats> stats = new TreeMap<>();
+        caches.forEach((name, cache) -> stats.put(name, cache.stats()));
+        return stats;
+    }
+}
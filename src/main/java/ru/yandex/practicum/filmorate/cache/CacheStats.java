@@ -0,0 +1,23 @@
+package ru.yandex.practicum.filmorate.cache;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class CacheStats {
+    private long hits;
+    private long misses;
+    private long coalescedLoads;
+    private long loadFailures;
+    private long evictions;
+    private long invalidations;
+    private int size;
+    private long weight;
+    private long maxWeight;
+
+    public double getHitRate() {
+        long requests = hits + misses + coalescedLoads;
+        return requests == 0 ? 0 : (double) (hits + coalescedLoads) / requests;
+    }
+}
@@ -0,0 +1,59 @@
+package ru.yandex.practicum.filmorate.cache;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+public class ReferenceData<T> {
+    private final Supplier<List<T>> loader;
+    private final Function<T, Long> idGetter;
+    private volatile Map<Long, T> values;
+
+    public ReferenceData(Supplier<List<T>> loader, Function<T, Long> idGetter) {
+        this.loader = loader;
+        this.idGetter = idGetter;
+    }
+
+    public List<T> getAll() {
+        return List.copyOf(snapshot().values());
+    }
+
+    public Optional<T> get(Long id) {
+        return Optional.ofNullable(snapshot().get(id));
+    }
+
+    public boolean contains(Long id) {
+        return snapshot().containsKey(id);
+    }
+
+    public Map<Long, T> getAll(Collection<Long> ids) {
+        Map<Long, T> current = snapshot();
+        Map<Long, T> found = new LinkedHashMap<>();
+        for (Long id : ids) {
+            T value = current.get(id);
+            if (value != null) {
+                found.put(id, value);
+            }
+        }
+        return found;
+    }
+
+    public synchronized void refresh() {
+        Map<Long, T> loaded = new LinkedHashMap<>();
+        loader.get().forEach(value -> loaded.put(idGetter.apply(value), value));
+        values = Collections.unmodifiableMap(loaded);
+    }
+
+    private Map<Long, T> snapshot() {
+        Map<Long, T> current = values;
+        if (current == null) {
+            synchronized (this) {
+                if (values == null) {
+                    refresh();
+                }
+                current = values;
+            }
+        }
+        return current;
+    }
+}
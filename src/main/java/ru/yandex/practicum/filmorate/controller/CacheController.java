@@ -0,0 +1,25 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import ru.yandex.practicum.filmorate.cache.CacheRegistry;
+import ru.yandex.practicum.filmorate.cache.CacheStats;
+
+import java.util.Map;
+
+@Slf4j
+@RestController
+@RequestMapping("/caches")
+@RequiredArgsConstructor
+public class CacheController {
+    private final CacheRegistry cacheRegistry;
+
+    @GetMapping
+    public Map<String, CacheStats> getCacheStats() {
+        log.info("Получение статистики кэшей");
+        return cacheRegistry.getStats();
+    }
+}
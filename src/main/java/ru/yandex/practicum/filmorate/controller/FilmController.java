@@ -1,13 +1,24 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmImportResult;
+import ru.yandex.practicum.filmorate.model.FilmPatch;
+import ru.yandex.practicum.filmorate.model.FilmProjection;
+import ru.yandex.practicum.filmorate.model.Suggestion;
+import ru.yandex.practicum.filmorate.service.FilmImportService;
 import ru.yandex.practicum.filmorate.service.FilmService;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 
 @Slf4j
@@ -16,18 +27,37 @@ import java.util.List;
 @RequestMapping("/films")
 public class FilmController {
     private final FilmService filmService;
+    private final FilmImportService filmImportService;
+    private final JsonStreamWriter jsonStreamWriter;
     private static final String DEFAULT_DIRECTORS_SORT_TYPE = "likes";
 
     @GetMapping
-    public List<Film> getAllFilms() {
-        log.info("Получение списка всех фильмов");
-        return filmService.getFilms();
+    public ResponseEntity<List<Film>> getAllFilms(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String view,
+            @RequestParam(required = false) String[] fields) {
+        log.info("Получение страницы фильмов после курсора {}", cursor);
+        return PageResponses.of(filmService.getFilmsPage(cursor, limit, FilmProjection.of(view, fields)));
+    }
+
+    @GetMapping(params = "unpaged=true")
+    public ResponseEntity<StreamingResponseBody> streamAllFilms(
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            @RequestParam(required = false) String view,
+            @RequestParam(required = false) String[] fields) {
+        log.info("Потоковая выгрузка всех фильмов");
+        FilmProjection projection = FilmProjection.of(view, fields);
+        return jsonStreamWriter.<Film>stream(accept, sink -> filmService.streamFilms(projection, sink));
     }
 
     @GetMapping("/{id}")
-    public Film getFilm(@PathVariable Long id) {
+    public Film getFilm(
+            @PathVariable Long id,
+            @RequestParam(required = false) String view,
+            @RequestParam(required = false) String[] fields) {
         log.info("Получение фильма с ID: {}", id);
-        return filmService.getFilmById(id);
+        return filmService.getFilmById(id, FilmProjection.of(view, fields));
     }
 
     @PostMapping
@@ -37,12 +67,26 @@ public class FilmController {
         return filmService.addFilm(film);
     }
 
+    @PostMapping(value = "/bulk", consumes = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> importFilms(HttpServletRequest request) throws IOException {
+        log.info("Пакетный импорт фильмов");
+        InputStream body = request.getInputStream();
+        return jsonStreamWriter.<FilmImportResult>stream(JsonStreamWriter.NDJSON.toString(),
+                sink -> filmImportService.importFilms(body, sink));
+    }
+
     @PutMapping
     public Film updateFilm(@Valid @RequestBody Film film) {
         log.info("Обновление фильма с ID {}", film.getId());
         return filmService.updateFilm(film);
     }
 
+    @PatchMapping
+    public Film patchFilm(@Valid @RequestBody FilmPatch patch) {
+        log.info("Частичное обновление фильма с ID {}", patch.getId());
+        return filmService.patchFilm(patch);
+    }
+
     @PutMapping("/{id}/like/{userId}")
     public void addLike(
             @PathVariable Long id,
@@ -60,10 +104,15 @@ public class FilmController {
     }
 
     @GetMapping("/popular")
-    public List<Film> getPopularFilms(
+    public ResponseEntity<List<Film>> getPopularFilms(
             @RequestParam(required = false) Integer count,
             @RequestParam(required = false) Long genreId,
-            @RequestParam(required = false) Integer year) {
+            @RequestParam(required = false) Integer year,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(defaultValue = "false") boolean unpaged,
+            @RequestParam(required = false) String view,
+            @RequestParam(required = false) String[] fields) {
         if (count != null) {
             log.info("Получение топ-{} популярных фильмов", count);
         } else {
@@ -75,23 +124,32 @@ public class FilmController {
         if (year != null) {
             log.info("С фильтрацией за {} год", year);
         }
-        return filmService.getPopularFilms(count, genreId, year);
+        FilmProjection projection = FilmProjection.of(view, fields);
+        if (count != null || unpaged) {
+            return ResponseEntity.ok(filmService.getPopularFilms(count, genreId, year, projection));
+        }
+        return PageResponses.of(filmService.getPopularFilmsPage(genreId, year, cursor, limit, projection));
     }
 
     @GetMapping("/director/{directorId}")
     private List<Film> getDirectorsFilms(
             @PathVariable Long directorId,
-            @RequestParam(defaultValue = DEFAULT_DIRECTORS_SORT_TYPE) String sortBy) {
+            @RequestParam(defaultValue = DEFAULT_DIRECTORS_SORT_TYPE) String sortBy,
+            @RequestParam(required = false) String view,
+            @RequestParam(required = false) String[] fields) {
         log.info("Получение фильмов режиссёра, отсортированных по {}", sortBy);
-        return filmService.getDirectorsFilms(directorId, sortBy);
+        return filmService.getDirectorsFilms(directorId, sortBy, FilmProjection.of(view, fields));
     }
 
     @GetMapping("/common")
     public List<Film> getCommonFilms(
-            @RequestParam Long userId,
-            @RequestParam Long friendId) {
-        log.info("Получение общих фильмов у пользователей с ID {} и {}", userId, friendId);
-        return filmService.getCommonFilms(userId, friendId);
+            @RequestParam(required = false) Long userId,
+            @RequestParam(required = false) Long friendId,
+            @RequestParam(required = false) List<Long> userIds,
+            @RequestParam(required = false) String view,
+            @RequestParam(required = false) String[] fields) {
+        log.info("Получение общих фильмов у пользователей с ID {}, {} и {}", userId, friendId, userIds);
+        return filmService.getCommonFilms(userId, friendId, userIds, FilmProjection.of(view, fields));
     }
 
     @DeleteMapping("/{filmId}")
@@ -103,8 +161,19 @@ public class FilmController {
     @GetMapping("/search")
     public List<Film> searchFilms(
             @RequestParam String query,
-            @RequestParam(defaultValue = "title,director") String[] by) {
+            @RequestParam(defaultValue = "title,director") String[] by,
+            @RequestParam(defaultValue = "exact") String mode,
+            @RequestParam(required = false) String view,
+            @RequestParam(required = false) String[] fields) {
         log.info("Получение фильмов с подстрокой {} в {}", query, by);
-        return filmService.searchFilms(query, by);
+        return filmService.searchFilms(query, by, mode, FilmProjection.of(view, fields));
+    }
+
+    @GetMapping("/search/suggest")
+    public List<Suggestion> suggest(
+            @RequestParam String prefix,
+            @RequestParam(defaultValue = "10") int count) {
+        log.info("Получение подсказок по префиксу {}", prefix);
+        return filmService.suggest(prefix, count);
     }
 }
@@ -0,0 +1,54 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.dal.RowSink;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class JsonStreamWriter {
+    public static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    private final ObjectMapper objectMapper;
+
+    public <T> ResponseEntity<StreamingResponseBody> stream(String accept, Source<T> source) {
+        boolean ndjson = accept != null && accept.contains(NDJSON.toString());
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+                generator.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+                if (ndjson) {
+                    generator.setRootValueSeparator(null);
+                    source.writeTo(item -> {
+                        generator.writeObject(item);
+                        generator.writeRaw('\n');
+                    });
+                } else {
+                    generator.writeStartArray();
+                    source.writeTo(generator::writeObject);
+                    generator.writeEndArray();
+                }
+            } catch (UncheckedIOException e) {
+                log.warn("Клиент прервал потоковую выгрузку: {}", e.getMessage());
+                throw e.getCause();
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(ndjson ? NDJSON : MediaType.APPLICATION_JSON)
+                .body(body);
+    }
+
+    @FunctionalInterface
+    public interface Source<T> {
+        void writeTo(RowSink<T> sink) throws IOException;
+    }
+}
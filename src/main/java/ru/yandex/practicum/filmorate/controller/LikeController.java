@@ -0,0 +1,35 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.model.LikeImportResult;
+import ru.yandex.practicum.filmorate.service.LikeImportService;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+@Slf4j
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/likes")
+public class LikeController {
+    private final LikeImportService likeImportService;
+    private final JsonStreamWriter jsonStreamWriter;
+
+    @PostMapping(value = "/bulk", consumes = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> importLikes(
+            HttpServletRequest request,
+            @RequestParam(defaultValue = "false") boolean events) throws IOException {
+        log.info("Пакетный импорт лайков, события: {}", events);
+        InputStream body = request.getInputStream();
+        return jsonStreamWriter.<LikeImportResult>stream(JsonStreamWriter.NDJSON.toString(),
+                sink -> likeImportService.importLikes(body, events, true, sink));
+    }
+}
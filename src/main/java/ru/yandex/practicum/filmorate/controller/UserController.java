@@ -3,9 +3,14 @@ package ru.yandex.practicum.filmorate.controller;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmProjection;
+import ru.yandex.practicum.filmorate.model.FriendSuggestion;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.service.UserService;
 
@@ -17,11 +22,21 @@ import java.util.List;
 @RequestMapping("/users")
 public class UserController {
     private final UserService userService;
+    private final JsonStreamWriter jsonStreamWriter;
 
     @GetMapping
-    public List<User> getAllUsers() {
-        log.info("Получение списка всех пользователей");
-        return userService.getUsers();
+    public ResponseEntity<List<User>> getAllUsers(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        log.info("Получение страницы пользователей после курсора {}", cursor);
+        return PageResponses.of(userService.getUsersPage(cursor, limit));
+    }
+
+    @GetMapping(params = "unpaged=true")
+    public ResponseEntity<StreamingResponseBody> streamAllUsers(
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        log.info("Потоковая выгрузка всех пользователей");
+        return jsonStreamWriter.stream(accept, userService::streamUsers);
     }
 
     @GetMapping("/{id}")
@@ -65,6 +80,14 @@ public class UserController {
         return userService.getFriends(id);
     }
 
+    @GetMapping("/{id}/friends/suggestions")
+    public List<FriendSuggestion> getFriendSuggestions(
+            @PathVariable Long id,
+            @RequestParam(defaultValue = "10") int count) {
+        log.info("Получение предложений друзей для пользователя {}", id);
+        return userService.getFriendSuggestions(id, count);
+    }
+
     @GetMapping("/{id}/friends/common/{otherId}")
     public List<User> getCommonFriends(
             @PathVariable Long id,
@@ -80,8 +103,13 @@ public class UserController {
     }
 
     @GetMapping("/{id}/recommendations")
-    public List<Film> showRecommendations(@PathVariable Long id) {
+    public List<Film> showRecommendations(
+            @PathVariable Long id,
+            @RequestParam(required = false) String strategy,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) String view,
+            @RequestParam(required = false) String[] fields) {
         log.info("Показ рекомендаций фильмов для пользователя {}", id);
-        return userService.showRecommendations(id);
+        return userService.showRecommendations(id, strategy, size, FilmProjection.of(view, fields));
     }
 }
\ No newline at end of file
@@ -4,18 +4,25 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import ru.yandex.practicum.filmorate.exceptions.InternalServerException;
 
 import java.sql.PreparedStatement;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Slf4j
 @RequiredArgsConstructor
 public class BaseDbStorage<T> {
+    private static final int IN_CLAUSE_BATCH_SIZE = 1000;
+
     protected final JdbcTemplate jdbc;
     protected final RowMapper<T> mapper;
 
@@ -46,6 +53,49 @@ public class BaseDbStorage<T> {
         }
     }
 
+    protected void queryByIds(String queryTemplate, Collection<Long> ids, RowCallbackHandler handler) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        List<Long> idList = new ArrayList<>(ids);
+        for (int from = 0; from < idList.size(); from += IN_CLAUSE_BATCH_SIZE) {
+            List<Long> chunk = idList.subList(from, Math.min(from + IN_CLAUSE_BATCH_SIZE, idList.size()));
+            String query = String.format(queryTemplate, placeholders(chunk.size()));
+            log.debug("Выполнение запроса по списку ID: {} для {} ID", query, chunk.size());
+            try {
+                jdbc.query(query, handler, chunk.toArray());
+            } catch (Exception e) {
+                log.error("Ошибка при выполнении запроса по списку ID {}: {}", query, e.getMessage());
+                throw e;
+            }
+        }
+    }
+
+    protected void batchUpdateLinks(String query, Long ownerId, Collection<Long> ids) {
+        batchUpdateLinks(query, Map.of(ownerId, ids), Math.max(ids.size(), 1));
+    }
+
+    protected void batchUpdateLinks(String query, Map<Long, ? extends Collection<Long>> idsByOwner, int batchSize) {
+        List<long[]> links = new ArrayList<>();
+        idsByOwner.forEach((ownerId, ids) -> ids.forEach(id -> links.add(new long[]{ownerId, id})));
+        batchUpdatePairs(query, links, batchSize);
+    }
+
+    protected void batchUpdatePairs(String query, List<long[]> pairs, int batchSize) {
+        if (pairs.isEmpty()) {
+            return;
+        }
+        log.debug("Пакетное выполнение: {} для {} пар", query, pairs.size());
+        jdbc.batchUpdate(query, pairs, batchSize, (ps, pair) -> {
+            ps.setLong(1, pair[0]);
+            ps.setLong(2, pair[1]);
+        });
+    }
+
+    protected static String placeholders(int count) {
+        return String.join(",", Collections.nCopies(count, "?"));
+    }
+
     protected void update(String query, Object... params) {
         log.debug("Выполнение обновления/удаления: {} с параметрами: {}", query, params);
         int rowsUpdated = jdbc.update(query, params);
@@ -57,12 +107,17 @@ public class BaseDbStorage<T> {
     }
 
     protected long insert(String query, Object... params) {
+        return insertReturning(null, query, params);
+    }
+
+    protected long insertReturning(String idColumn, String query, Object... params) {
         log.debug("Выполнение вставки: {} с параметрами: {}", query, params);
         GeneratedKeyHolder keyHolder = new GeneratedKeyHolder();
         try {
             jdbc.update(connection -> {
-                PreparedStatement ps = connection
-                        .prepareStatement(query, Statement.RETURN_GENERATED_KEYS);
+                PreparedStatement ps = idColumn == null
+                        ? connection.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)
+                        : connection.prepareStatement(query, new String[]{idColumn});
                 for (int idx = 0; idx < params.length; idx++) {
                     ps.setObject(idx + 1, params[idx]);
                 }
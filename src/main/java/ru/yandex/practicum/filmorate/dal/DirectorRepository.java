@@ -1,14 +1,18 @@
 package ru.yandex.practicum.filmorate.dal;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.yandex.practicum.filmorate.cache.BoundedCache;
+import ru.yandex.practicum.filmorate.cache.CacheRegistry;
 import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Director;
 
 import java.util.*;
-import java.util.stream.Stream;
 
 @Slf4j
 @Repository
@@ -22,23 +26,34 @@ public class DirectorRepository extends BaseDbStorage<Director> {
             UPDATE directors
             SET name = ?
             WHERE director_id = ?""";
-    private static final String FIND_BY_FILM_QUERY = """
-            SELECT d.*
-            FROM directors d
-            JOIN film_directors fd ON d.director_id = fd.director_id
-            WHERE fd.film_id = ?
-            ORDER BY d.director_id""";
+    private static final String FIND_BY_FILMS_QUERY = """
+            SELECT film_id, director_id
+            FROM film_directors
+            WHERE film_id IN (%s)
+            ORDER BY film_id, director_id""";
     private static final String DELETE_QUERY = "DELETE FROM directors WHERE director_id = ?";
     private static final String FIND_BY_IDS_QUERY = "SELECT * FROM directors WHERE director_id IN (%s)";
-    private static final String INSERT_DIRECTORS_QUERY = "INSERT INTO film_directors(film_id, director_id) VALUES %s";
-    private static final String DELETE_DIRECTORS_QUERY = "DELETE FROM film_directors WHERE film_id = ?";
+    private static final String INSERT_FILM_DIRECTOR_QUERY = "INSERT INTO film_directors(film_id, director_id) VALUES (?, ?)";
+    private static final String DELETE_FILM_DIRECTOR_QUERY = "DELETE FROM film_directors WHERE film_id = ? AND director_id = ?";
 
 
-    private final JdbcTemplate jdbc;
+    private static final long[] NO_DIRECTORS = new long[0];
 
-    public DirectorRepository(JdbcTemplate jdbc, RowMapper<Director> mapper) {
+    private final BoundedCache<Long, Optional<Director>> directors;
+    private final BoundedCache<Long, long[]> filmDirectors;
+
+    public DirectorRepository(JdbcTemplate jdbc,
+                              RowMapper<Director> mapper,
+                              CacheRegistry cacheRegistry,
+                              @Value("${filmorate.directors.cache.max-entries:50000}") long maxDirectors,
+                              @Value("${filmorate.directors.film-cache.max-weight:200000}") long maxFilmDirectorsWeight) {
         super(jdbc, mapper);
-        this.jdbc = jdbc;
+        this.directors = cacheRegistry.register("directors",
+                new BoundedCache<>(maxDirectors, (id, director) -> 1, (id, director) -> {
+                }));
+        this.filmDirectors = cacheRegistry.register("film-directors",
+                new BoundedCache<>(maxFilmDirectorsWeight, (filmId, ids) -> ids.length + 1, (filmId, ids) -> {
+                }));
     }
 
     public List<Director> findAll() {
@@ -46,7 +61,7 @@ public class DirectorRepository extends BaseDbStorage<Director> {
     }
 
     public Optional<Director> findById(Long id) {
-        return findOne(FIND_BY_ID_QUERY, id);
+        return directors.get(id, key -> findOne(FIND_BY_ID_QUERY, key).map(DirectorRepository::copy));
     }
 
     public Director getById(Long id) {
@@ -58,6 +73,7 @@ public class DirectorRepository extends BaseDbStorage<Director> {
     public Director addDirector(Director director) {
         long id = insert(INSERT_QUERY, director.getName());
         director.setId(id);
+        directors.put(id, Optional.of(copy(director)));
 
         return director;
     }
@@ -65,6 +81,7 @@ public class DirectorRepository extends BaseDbStorage<Director> {
     public Director updateDirector(Director director) {
         getById(director.getId());
         update(UPDATE_QUERY, director.getName(), director.getId());
+        directors.put(director.getId(), Optional.of(copy(director)));
 
         return director;
     }
@@ -72,50 +89,111 @@ public class DirectorRepository extends BaseDbStorage<Director> {
     public void deleteDirector(Long id) {
         getById(id);
         update(DELETE_QUERY, id);
+        directors.put(id, Optional.empty());
     }
 
     public Set<Director> findByIds(List<Long> ids) {
-        if (ids.isEmpty()) {
-            return new HashSet<>();
+        Set<Director> found = new LinkedHashSet<>();
+        for (Optional<Director> director : directors.getAll(new LinkedHashSet<>(ids), this::loadDirectors).values()) {
+            director.ifPresent(found::add);
+        }
+        if (found.size() != new HashSet<>(ids).size()) {
+            throw new NotFoundException("Некоторые режиссеры не найдены в базе");
+        }
+        return found;
+    }
+
+    public void updateFilmDirectors(Long filmId, Collection<Long> current, Collection<Long> added, Collection<Long> removed) {
+        if (!added.isEmpty() || !removed.isEmpty()) {
+            log.info("Изменение режиссеров фильма {}: добавлены {}, удалены {}", filmId, added, removed);
+            batchUpdateLinks(DELETE_FILM_DIRECTOR_QUERY, filmId, removed);
+            batchUpdateLinks(INSERT_FILM_DIRECTOR_QUERY, filmId, added);
         }
+        putAfterCommit(Map.of(filmId, toSortedArray(current)));
+    }
 
-        String placeholders = String.join(",", Collections.nCopies(ids.size(), "?"));
-        String query = String.format(FIND_BY_IDS_QUERY, placeholders);
+    public void addToFilms(Map<Long, Set<Long>> directorIdsByFilm, int batchSize) {
+        batchUpdateLinks(INSERT_FILM_DIRECTOR_QUERY, directorIdsByFilm, batchSize);
+        Map<Long, long[]> values = new HashMap<>();
+        directorIdsByFilm.forEach((filmId, ids) -> values.put(filmId, toSortedArray(ids)));
+        putAfterCommit(values);
+    }
 
-        Object[] params = ids.toArray();
+    public Map<Long, Set<Director>> findByFilmIds(Collection<Long> filmIds) {
+        Map<Long, long[]> directorIdsByFilm = filmDirectors.getAll(filmIds, this::loadFilmDirectorIds);
+        Set<Long> directorIds = new LinkedHashSet<>();
+        directorIdsByFilm.values().forEach(ids -> Arrays.stream(ids).forEach(directorIds::add));
+        Map<Long, Optional<Director>> directorsById = directors.getAll(directorIds, this::loadDirectors);
+
+        Map<Long, Set<Director>> directorsByFilm = new HashMap<>();
+        directorIdsByFilm.forEach((filmId, ids) -> {
+            Set<Director> filmDirectorSet = new LinkedHashSet<>();
+            for (long directorId : ids) {
+                directorsById.getOrDefault(directorId, Optional.empty()).ifPresent(filmDirectorSet::add);
+            }
+            if (!filmDirectorSet.isEmpty()) {
+                directorsByFilm.put(filmId, filmDirectorSet);
+            }
+        });
+        return directorsByFilm;
+    }
 
-        List<Director> directors = findMany(query, params);
+    public void evictFilm(Long filmId) {
+        filmDirectors.invalidate(filmId);
+    }
 
-        if (directors.size() != ids.size()) {
-            throw new NotFoundException("Некоторые режиссеры не найдены в базе");
-        }
+    private Map<Long, Optional<Director>> loadDirectors(Set<Long> ids) {
+        Map<Long, Optional<Director>> loaded = new HashMap<>();
+        ids.forEach(id -> loaded.put(id, Optional.empty()));
+        queryByIds(FIND_BY_IDS_QUERY, ids, rs -> {
+            Director director = mapper.mapRow(rs, rs.getRow());
+            loaded.put(director.getId(), Optional.of(director));
+        });
+        return loaded;
+    }
 
-        return new LinkedHashSet<>(findMany(query, params));
+    private Map<Long, long[]> loadFilmDirectorIds(Set<Long> filmIds) {
+        Map<Long, List<Long>> loaded = new HashMap<>();
+        filmIds.forEach(filmId -> loaded.put(filmId, new ArrayList<>()));
+        queryByIds(FIND_BY_FILMS_QUERY, filmIds, rs -> {
+            loaded.get(rs.getLong("film_id")).add(rs.getLong("director_id"));
+        });
+        Map<Long, long[]> result = new HashMap<>();
+        loaded.forEach((filmId, ids) -> result.put(filmId, ids.isEmpty()
+                ? NO_DIRECTORS
+                : ids.stream().mapToLong(Long::longValue).toArray()));
+        return result;
     }
 
-    public void addDirectorsToFilm(Long filmId, List<Long> ids) {
-        if (ids.isEmpty()) {
+    private void putAfterCommit(Map<Long, long[]> values) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            values.forEach(filmDirectors::put);
             return;
         }
-
-        String placeholders = String.join(",", Collections.nCopies(ids.size(), "(?, ?)"));
-        String query = String.format(INSERT_DIRECTORS_QUERY, placeholders);
-
-        Object[] params = ids.stream()
-                .flatMap(directorId -> Stream.of(filmId, directorId))
-                .toArray();
-
-        log.info("Добавление директоров {} к фильму {}", ids, filmId);
-        jdbc.update(query, params);
-        log.info("Директоры успешно добавлены");
+        values.keySet().forEach(filmDirectors::invalidate);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                values.forEach(filmDirectors::put);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    values.keySet().forEach(filmDirectors::invalidate);
+                }
+            }
+        });
     }
 
-    public List<Director> findByFilmId(Long filmId) {
-        return findMany(FIND_BY_FILM_QUERY, filmId);
+    private static long[] toSortedArray(Collection<Long> ids) {
+        return ids.isEmpty()
+                ? NO_DIRECTORS
+                : ids.stream().mapToLong(Long::longValue).sorted().distinct().toArray();
     }
 
-    public void removeAllDirectorsFromFilm(Long filmId) {
-        jdbc.update(DELETE_DIRECTORS_QUERY, filmId);
+    private static Director copy(Director director) {
+        return new Director(director.getId(), director.getName());
     }
 
 }
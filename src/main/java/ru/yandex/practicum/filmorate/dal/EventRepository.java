@@ -21,7 +21,6 @@ public class EventRepository {
 
     private final JdbcTemplate jdbc;
     private final EventRowMapper eventRowMapper;
-    private final UserDbStorage userStorage;
 
 
     public void addEvent(Long userId, EventType eventType, EventOperation operation, Long entityId) {
@@ -33,8 +32,20 @@ public class EventRepository {
                 entityId);
     }
 
+    public void addEvents(List<Event> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        jdbc.batchUpdate(INSERT_EVENT_QUERY, events, events.size(), (ps, event) -> {
+            ps.setLong(1, event.getTimestamp());
+            ps.setLong(2, event.getUserId());
+            ps.setString(3, event.getEventType().name());
+            ps.setString(4, event.getOperation().name());
+            ps.setLong(5, event.getEntityId());
+        });
+    }
+
     public List<Event> getUserFeed(Long userId) {
-        userStorage.getUserById(userId);
         return jdbc.query(GET_EVENTS_QUERY, eventRowMapper, userId);
     }
 }
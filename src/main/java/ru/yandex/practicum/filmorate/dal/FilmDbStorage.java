@@ -1,78 +1,87 @@
 package ru.yandex.practicum.filmorate.dal;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.dal.mappers.FilmRowMapper;
+import ru.yandex.practicum.filmorate.exceptions.InternalServerException;
 import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
 import ru.yandex.practicum.filmorate.exceptions.ParameterNotValidException;
 import ru.yandex.practicum.filmorate.exceptions.ValidationException;
+import ru.yandex.practicum.filmorate.index.PopularityEntry;
 import ru.yandex.practicum.filmorate.model.Director;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmPatch;
+import ru.yandex.practicum.filmorate.model.FilmProjection;
 import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.LikeSet;
+import ru.yandex.practicum.filmorate.model.LikesCountDrift;
+import ru.yandex.practicum.filmorate.model.MpaRating;
 import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
 import ru.yandex.practicum.filmorate.model.enums.SortBy;
-import ru.yandex.practicum.filmorate.model.enums.SearchType;
 
+import java.io.IOException;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
 import java.time.LocalDate;
 import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.LongConsumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Slf4j
 @Repository
 public class FilmDbStorage extends BaseDbStorage<Film> implements FilmStorage {
     private static final String FIND_ALL_QUERY = "SELECT * FROM films";
     private static final String FIND_BY_ID_QUERY = "SELECT * FROM films WHERE film_id = ?";
+    private static final String EXISTS_BY_ID_QUERY = "SELECT EXISTS(SELECT 1 FROM films WHERE film_id = ?)";
+    private static final String HAS_LIKE_QUERY = "SELECT EXISTS(SELECT 1 FROM likes WHERE film_id = ? AND user_id = ?)";
+    private static final String FIND_EXISTING_IDS_QUERY = "SELECT film_id FROM films WHERE film_id IN (%s)";
+    private static final String FIND_ALL_IDS_QUERY = "SELECT film_id FROM films";
+    private static final String FIND_PAGE_QUERY = "SELECT * FROM films WHERE film_id > ? ORDER BY film_id LIMIT ?";
+    private static final String FIND_BY_IDS_QUERY = "SELECT * FROM films WHERE film_id IN (%s)";
+    private static final String FIND_ALL_TITLES_QUERY = "SELECT film_id, name FROM films";
+    private static final String FIND_POPULARITY_QUERY = "SELECT film_id, likes_count, release_year FROM films";
+    private static final String FIND_ALL_FILM_GENRES_QUERY = "SELECT film_id, genre_id FROM film_genres";
+    private static final String FIND_ALL_FILM_DIRECTORS_QUERY = "SELECT film_id, director_id FROM film_directors";
     private static final String INSERT_QUERY = "INSERT INTO films(name, description, release_date, duration, rating_id) VALUES (?, ?, ?, ?, ?)";
     private static final String UPDATE_QUERY = "UPDATE films SET name = ?, description = ?, release_date = ?, duration = ?, rating_id = ? WHERE film_id = ?";
+    private static final String PATCH_QUERY = "UPDATE films SET %s WHERE film_id = ?";
+    private static final String LOCK_BY_ID_QUERY = "SELECT film_id FROM films WHERE film_id = ? FOR UPDATE";
+    private static final String FIND_LINKS_QUERY = """
+            SELECT 'GENRE' AS link_type, genre_id AS link_id FROM film_genres WHERE film_id = ?
+            UNION ALL
+            SELECT 'DIRECTOR', director_id FROM film_directors WHERE film_id = ?""";
     private static final String ADD_LIKE_QUERY = "INSERT INTO likes(film_id, user_id) VALUES (?, ?)";
     private static final String REMOVE_LIKE_QUERY = "DELETE FROM likes WHERE film_id = ? AND user_id = ?";
-    private static final String GET_POPULAR_QUERY = "SELECT f.* FROM films f LEFT JOIN likes l ON f.film_id = l.film_id GROUP BY f.film_id ORDER BY COUNT(l.user_id) DESC";
-    private static final String GET_POPULAR_QUERY_GENRE = "SELECT f.* FROM films f LEFT JOIN likes l ON f.film_id = l.film_id LEFT JOIN film_genres fg ON f.film_id = fg.film_id WHERE fg.genre_id = ? GROUP BY f.film_id ORDER BY COUNT(l.user_id) DESC";
-    private static final String GET_POPULAR_QUERY_YEAR = "SELECT f.* FROM films f LEFT JOIN likes l ON f.film_id = l.film_id WHERE EXTRACT(YEAR FROM CAST(release_date AS DATE)) = ? GROUP BY f.film_id ORDER BY COUNT(l.user_id) DESC";
-    private static final String GET_POPULAR_QUERY_GENRE_AND_YEAR = "SELECT f.* FROM films f LEFT JOIN likes l ON f.film_id = l.film_id LEFT JOIN film_genres fg ON f.film_id = fg.film_id WHERE fg.genre_id = ? AND EXTRACT(YEAR FROM CAST(release_date AS DATE)) = ? GROUP BY f.film_id ORDER BY COUNT(l.user_id) DESC";
-    private static final String GET_SEARCH_BY_TITLE_QUERY = """
-            SELECT f.*
-            FROM films f
-            LEFT JOIN likes l ON f.film_id = l.film_id
-            WHERE UPPER(f.name) LIKE UPPER(CONCAT('%', ?, '%'))
-            GROUP BY f.film_id
-            ORDER BY COUNT(l.user_id) DESC
-            """;
-    private static final String GET_SEARCH_BY_DIRECTOR_QUERY = """
-            SELECT f.*
-            FROM films f
-            LEFT JOIN film_directors fd ON f.film_id = fd.film_id
-            LEFT JOIN directors d ON fd.director_id = d.director_id
-            LEFT JOIN likes l ON f.film_id = l.film_id
-            WHERE UPPER(d.name) LIKE UPPER(CONCAT('%', ?, '%'))
-            GROUP BY f.film_id
-            ORDER BY COUNT(l.user_id) DESC
-            """;
-    private static final String GET_SEARCH_BY_BOTH_QUERY = """
-            SELECT f.*
-            FROM films f
-            LEFT JOIN film_directors fd ON f.film_id = fd.film_id
-            LEFT JOIN directors d ON fd.director_id = d.director_id
-            LEFT JOIN likes l ON f.film_id = l.film_id
-            WHERE UPPER(f.name) LIKE UPPER(CONCAT('%', ?, '%')) OR
-                  UPPER(d.name) LIKE UPPER(CONCAT('%', ?, '%'))
-            GROUP BY f.film_id
-            ORDER BY COUNT(l.user_id) DESC
-            """;
-    private static final String GET_LIKED_FILMS = "SELECT film_id FROM likes WHERE user_id = ?";
-    private static final String GET_SIMILAR_USER = "SELECT user_id FROM likes WHERE film_id IN (SELECT film_id FROM likes WHERE user_id = ?) AND user_id != ? GROUP BY user_id ORDER BY COUNT(film_id) DESC LIMIT 1";
-    private static final String GET_SIMILAR_USER_LIKED_FILMS = "SELECT  f.* FROM films f JOIN likes l ON f.film_id = l.film_id WHERE user_id IN (" + GET_SIMILAR_USER + ")";
-    private static final String GET_FILM_RECOMMENDATIONS = GET_SIMILAR_USER_LIKED_FILMS + "AND l.film_id NOT IN (" + GET_LIKED_FILMS + ")";
-    private static final String GET_DIRECTORS_FILMS_BY_LIKES = """
-            SELECT f.*
+    private static final String FIND_EXISTING_LIKES_QUERY = "SELECT film_id, user_id FROM likes WHERE (film_id, user_id) IN (%s)";
+    private static final String FIND_LIKES_BY_FILMS_QUERY = "SELECT film_id, user_id FROM likes WHERE film_id IN (%s) ORDER BY film_id, user_id";
+    private static final String INCREMENT_LIKES_COUNT_QUERY = "UPDATE films SET likes_count = likes_count + 1 WHERE film_id = ?";
+    private static final String DECREMENT_LIKES_COUNT_QUERY = "UPDATE films SET likes_count = likes_count - 1 WHERE film_id = ?";
+    private static final String CHANGE_LIKES_COUNT_QUERY = "UPDATE films SET likes_count = likes_count + ? WHERE film_id = ?";
+    private static final String DECREMENT_LIKES_COUNT_FOR_USER_QUERY = """
+            UPDATE films
+            SET likes_count = likes_count - 1
+            WHERE film_id IN (SELECT film_id FROM likes WHERE user_id = ?)""";
+    private static final String FIND_LIKES_COUNT_DRIFT_QUERY = """
+            SELECT f.film_id, f.likes_count, COUNT(l.user_id) AS actual_count
             FROM films f
-            JOIN film_directors fd ON f.film_id = fd.film_id
             LEFT JOIN likes l ON f.film_id = l.film_id
-            WHERE fd.director_id = ?
-            GROUP BY f.film_id
-            ORDER BY COUNT(l.user_id) DESC
-            """;
+            GROUP BY f.film_id, f.likes_count
+            HAVING f.likes_count <> COUNT(l.user_id)""";
+    private static final String RECALCULATE_LIKES_COUNT_QUERY = """
+            UPDATE films f
+            SET likes_count = (SELECT COUNT(*) FROM likes l WHERE l.film_id = f.film_id)
+            WHERE f.film_id = ?""";
+    private static final String GET_POPULAR_QUERY = "SELECT f.* FROM films f ORDER BY f.likes_count DESC, f.film_id";
+    private static final String GET_POPULAR_QUERY_GENRE = "SELECT f.* FROM films f JOIN film_genres fg ON f.film_id = fg.film_id WHERE fg.genre_id = ? ORDER BY f.likes_count DESC, f.film_id";
+    private static final String GET_POPULAR_QUERY_YEAR = "SELECT f.* FROM films f WHERE f.release_year = ? ORDER BY f.likes_count DESC, f.film_id";
+    private static final String GET_POPULAR_QUERY_GENRE_AND_YEAR = "SELECT f.* FROM films f JOIN film_genres fg ON f.film_id = fg.film_id WHERE fg.genre_id = ? AND f.release_year = ? ORDER BY f.likes_count DESC, f.film_id";
+    private static final String FIND_ALL_LIKES_QUERY = "SELECT film_id, user_id FROM likes ORDER BY user_id, film_id";
     private static final String GET_DIRECTORS_FILMS_BY_YEAR = """
             SELECT f.*
             FROM films f
@@ -81,105 +90,353 @@ public class FilmDbStorage extends BaseDbStorage<Film> implements FilmStorage {
             GROUP BY f.film_id
             ORDER BY f.release_date
             """;
-    private static final String GET_COMMON_QUERY = "SELECT f.* FROM films f JOIN likes l1 ON f.film_id = l1.film_id AND l1.user_id = ? JOIN likes l2 ON f.film_id = l2.film_id AND l2.user_id = ?";
     private static final String REMOVE_FILM_BY_ID_QUERY = """
             DELETE FROM films
             WHERE film_id = ?
             """;
 
+    private static final int LIKE_PAIRS_BATCH_SIZE = 500;
+    private static final int STREAM_CHUNK_SIZE = 500;
+
     private static final LocalDate MIN_RELEASE_DATE = LocalDate.of(1895, 12, 28);
 
 
     private final JdbcTemplate jdbc;
-    private final FilmRowMapper filmRowMapper;
     private final MpaRatingRepository mpaRatingRepository;
     private final GenreRepository genreRepository;
     private final DirectorRepository directorRepository;
+    private final LikeWriteQueue likeWriteQueue;
 
     public FilmDbStorage(JdbcTemplate jdbc,
                          FilmRowMapper filmRowMapper,
                          MpaRatingRepository mpaRatingRepository,
                          GenreRepository genreRepository,
-                         DirectorRepository directorRepository) {
+                         DirectorRepository directorRepository,
+                         LikeWriteQueue likeWriteQueue) {
         super(jdbc, filmRowMapper);
         this.jdbc = jdbc;
-        this.filmRowMapper = filmRowMapper;
         this.mpaRatingRepository = mpaRatingRepository;
         this.genreRepository = genreRepository;
         this.directorRepository = directorRepository;
+        this.likeWriteQueue = likeWriteQueue;
     }
 
     @Override
     public List<Film> getFilms() {
-        return findMany(FIND_ALL_QUERY);
+        return findManyHydrated(FilmProjection.FULL, FIND_ALL_QUERY);
     }
 
     @Override
     public Film getFilmById(Long id) {
+        return getFilmById(id, FilmProjection.FULL);
+    }
+
+    public Film getFilmById(Long id, FilmProjection projection) {
         return findOne(FIND_BY_ID_QUERY, id)
+                .map(film -> hydrate(List.of(film), projection).getFirst())
                 .orElseThrow(() -> new NotFoundException("Фильм с id " + id + " не найден"));
     }
 
+    public void streamFilms(FilmProjection projection, RowSink<Film> sink) throws IOException {
+        long afterId = 0;
+        List<Film> chunk;
+        do {
+            chunk = getFilmsPage(afterId, STREAM_CHUNK_SIZE, projection);
+            for (Film film : chunk) {
+                sink.accept(film);
+            }
+            if (!chunk.isEmpty()) {
+                afterId = chunk.getLast().getId();
+            }
+        } while (chunk.size() == STREAM_CHUNK_SIZE);
+    }
+
+    public List<Film> getFilmsPage(long afterId, int limit, FilmProjection projection) {
+        return findManyHydrated(projection, FIND_PAGE_QUERY, afterId, limit);
+    }
+
+    public List<Film> getFilmsByIds(List<Long> ids) {
+        return getFilmsByIds(ids, FilmProjection.FULL);
+    }
+
+    public List<Film> getFilmsByIds(List<Long> ids, FilmProjection projection) {
+        Map<Long, Film> filmsById = new HashMap<>();
+        queryByIds(FIND_BY_IDS_QUERY, ids, rs -> {
+            Film film = mapper.mapRow(rs, rs.getRow());
+            filmsById.put(film.getId(), film);
+        });
+        List<Film> films = ids.stream()
+                .map(filmsById::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toCollection(ArrayList::new));
+        return hydrate(films, projection);
+    }
+
+    public List<PopularityEntry> getPopularityEntries() {
+        Map<Long, Set<Long>> genreIds = findAllAssociationIds(FIND_ALL_FILM_GENRES_QUERY, "genre_id");
+        Map<Long, Set<Long>> directorIds = getFilmDirectorIds();
+        return jdbc.query(FIND_POPULARITY_QUERY, (rs, rowNum) -> {
+            long filmId = rs.getLong("film_id");
+            return new PopularityEntry(
+                    filmId,
+                    rs.getInt("likes_count"),
+                    rs.getInt("release_year"),
+                    genreIds.getOrDefault(filmId, new HashSet<>()),
+                    directorIds.getOrDefault(filmId, new HashSet<>()));
+        });
+    }
+
+    public Map<Long, String> getFilmTitles() {
+        Map<Long, String> titles = new HashMap<>();
+        jdbc.query(FIND_ALL_TITLES_QUERY, rs -> {
+            titles.put(rs.getLong("film_id"), rs.getString("name"));
+        });
+        return titles;
+    }
+
+    public Map<Long, Set<Long>> getFilmDirectorIds() {
+        return findAllAssociationIds(FIND_ALL_FILM_DIRECTORS_QUERY, "director_id");
+    }
+
+    private Map<Long, Set<Long>> findAllAssociationIds(String query, String column) {
+        Map<Long, Set<Long>> ids = new HashMap<>();
+        jdbc.query(query, rs -> {
+            ids.computeIfAbsent(rs.getLong("film_id"), id -> new HashSet<>()).add(rs.getLong(column));
+        });
+        return ids;
+    }
+
+    public void forEachLike(BiConsumer<Long, Long> consumer) {
+        jdbc.query(FIND_ALL_LIKES_QUERY, rs -> {
+            consumer.accept(rs.getLong("film_id"), rs.getLong("user_id"));
+        });
+    }
+
     @Override
+    @Transactional
     public Film addFilm(Film film) {
-        validateFilmReleaseDate(film);
-        log.info("Добавление фильма с id {} на уровне репозитория 1", film.getId());
+        validateReleaseDate(film.getReleaseDate());
         film = setMpaAndGenresAndDirectorsToFilm(film);
-        log.info("Добавление фильма с id {} на уровне репозитория 2", film.getId());
-        long id = insert(INSERT_QUERY,
+        long id = insertReturning("film_id", INSERT_QUERY,
                 film.getName(),
                 film.getDescription(),
                 film.getReleaseDate(),
                 film.getDuration(),
                 film.getMpa().getId());
         film.setId(id);
-        addGenresAndDirectorsToDb(film);
-        log.info("Добавление жанров к фильму с id {} на уровне репозитория", film.getId());
+        log.info("Добавлен фильм с id {} на уровне репозитория", id);
+        writeGenres(id, Set.of(), genreIds(film.getGenres()));
+        writeDirectors(id, Set.of(), directorIds(film.getDirectors()));
         return film;
     }
 
     @Override
+    @Transactional
     public Film updateFilm(Film film) {
-        validateFilmReleaseDate(film);
+        validateReleaseDate(film.getReleaseDate());
         film = setMpaAndGenresAndDirectorsToFilm(film);
-        update(UPDATE_QUERY,
+        int updated = jdbc.update(UPDATE_QUERY,
                 film.getName(),
                 film.getDescription(),
                 film.getReleaseDate(),
                 film.getDuration(),
                 film.getMpa().getId(),
                 film.getId());
-        addGenresAndDirectorsToDb(film);
+        if (updated == 0) {
+            throw new NotFoundException("Фильм с id " + film.getId() + " не найден");
+        }
+        FilmLinks links = findLinks(film.getId());
+        writeGenres(film.getId(), links.genreIds(), genreIds(film.getGenres()));
+        writeDirectors(film.getId(), links.directorIds(), directorIds(film.getDirectors()));
         return film;
     }
 
+    public Film prepareFilm(Film film) {
+        validateReleaseDate(film.getReleaseDate());
+        return setMpaAndGenresAndDirectorsToFilm(film);
+    }
+
+    @Transactional
+    public void addFilms(List<Film> films, int batchSize) {
+        for (int from = 0; from < films.size(); from += batchSize) {
+            insertFilms(films.subList(from, Math.min(from + batchSize, films.size())));
+        }
+        Map<Long, Set<Long>> genreIdsByFilm = new LinkedHashMap<>();
+        Map<Long, Set<Long>> directorIdsByFilm = new LinkedHashMap<>();
+        for (Film film : films) {
+            genreIdsByFilm.put(film.getId(), genreIds(film.getGenres()));
+            directorIdsByFilm.put(film.getId(), directorIds(film.getDirectors()));
+        }
+        genreRepository.addToFilms(genreIdsByFilm, batchSize);
+        directorRepository.addToFilms(directorIdsByFilm, batchSize);
+        log.info("Пакетно добавлено {} фильмов", films.size());
+    }
+
+    @Transactional
+    public Film patchFilm(FilmPatch patch) {
+        Long id = patch.getId();
+        List<String> columns = new ArrayList<>();
+        List<Object> params = new ArrayList<>();
+        if (patch.getName() != null) {
+            columns.add("name = ?");
+            params.add(patch.getName());
+        }
+        if (patch.getDescription() != null) {
+            columns.add("description = ?");
+            params.add(patch.getDescription());
+        }
+        if (patch.getReleaseDate() != null) {
+            validateReleaseDate(patch.getReleaseDate());
+            columns.add("release_date = ?");
+            params.add(patch.getReleaseDate());
+        }
+        if (patch.getDuration() != null) {
+            columns.add("duration = ?");
+            params.add(patch.getDuration());
+        }
+        if (patch.getMpa() != null) {
+            columns.add("rating_id = ?");
+            params.add(mpaRatingRepository.getById(patch.getMpa().getId()).getId());
+        }
+
+        boolean found;
+        if (columns.isEmpty()) {
+            found = !jdbc.queryForList(LOCK_BY_ID_QUERY, Long.class, id).isEmpty();
+        } else {
+            params.add(id);
+            found = jdbc.update(String.format(PATCH_QUERY, String.join(", ", columns)), params.toArray()) > 0;
+        }
+        if (!found) {
+            throw new NotFoundException("Фильм с id " + id + " не найден");
+        }
+        log.info("Частичное обновление фильма с id {}: колонки {}", id, columns);
+
+        if (patch.getGenres() != null || patch.getDirectors() != null) {
+            FilmLinks links = findLinks(id);
+            if (patch.getGenres() != null) {
+                Set<Long> genreIds = genreIds(patch.getGenres());
+                validateGenres(genreIds);
+                writeGenres(id, links.genreIds(), genreIds);
+            }
+            if (patch.getDirectors() != null) {
+                Set<Long> directorIds = directorIds(patch.getDirectors());
+                directorRepository.findByIds(List.copyOf(directorIds));
+                writeDirectors(id, links.directorIds(), directorIds);
+            }
+        }
+        return getFilmById(id);
+    }
+
+    @Transactional
     public void addLike(Long filmId, Long userId) {
         jdbc.update(ADD_LIKE_QUERY, filmId, userId);
+        jdbc.update(INCREMENT_LIKES_COUNT_QUERY, filmId);
     }
 
+    @Transactional
     public void removeLike(Long filmId, Long userId) {
-        jdbc.update(REMOVE_LIKE_QUERY, filmId, userId);
+        if (jdbc.update(REMOVE_LIKE_QUERY, filmId, userId) > 0) {
+            jdbc.update(DECREMENT_LIKES_COUNT_QUERY, filmId);
+        }
+    }
+
+    @Transactional
+    public void applyLikeChanges(List<long[]> added, List<long[]> removed) {
+        batchUpdatePairs(ADD_LIKE_QUERY, added, Math.max(added.size(), 1));
+        batchUpdatePairs(REMOVE_LIKE_QUERY, removed, Math.max(removed.size(), 1));
+
+        Map<Long, Integer> deltas = new HashMap<>();
+        added.forEach(like -> deltas.merge(like[0], 1, Integer::sum));
+        removed.forEach(like -> deltas.merge(like[0], -1, Integer::sum));
+        deltas.values().removeIf(delta -> delta == 0);
+        if (!deltas.isEmpty()) {
+            jdbc.batchUpdate(CHANGE_LIKES_COUNT_QUERY, deltas.entrySet(), deltas.size(), (ps, delta) -> {
+                ps.setInt(1, delta.getValue());
+                ps.setLong(2, delta.getKey());
+            });
+        }
+        log.debug("Записаны изменения лайков: добавлено {}, удалено {}", added.size(), removed.size());
+    }
+
+    public boolean existsById(Long id) {
+        return Boolean.TRUE.equals(jdbc.queryForObject(EXISTS_BY_ID_QUERY, Boolean.class, id));
+    }
+
+    public boolean hasLike(Long filmId, Long userId) {
+        return Boolean.TRUE.equals(jdbc.queryForObject(HAS_LIKE_QUERY, Boolean.class, filmId, userId));
+    }
+
+    public void forEachFilmId(LongConsumer consumer) {
+        jdbc.query(FIND_ALL_IDS_QUERY, rs -> {
+            consumer.accept(rs.getLong("film_id"));
+        });
+    }
+
+    public Set<Long> findExistingIds(Collection<Long> ids) {
+        Set<Long> existing = new HashSet<>();
+        queryByIds(FIND_EXISTING_IDS_QUERY, ids, rs -> {
+            existing.add(rs.getLong("film_id"));
+        });
+        return existing;
+    }
+
+    public List<long[]> filterNewLikes(List<long[]> likes) {
+        Map<Long, Set<Long>> existing = new HashMap<>();
+        for (int from = 0; from < likes.size(); from += LIKE_PAIRS_BATCH_SIZE) {
+            List<long[]> chunk = likes.subList(from, Math.min(from + LIKE_PAIRS_BATCH_SIZE, likes.size()));
+            String query = String.format(FIND_EXISTING_LIKES_QUERY,
+                    String.join(",", Collections.nCopies(chunk.size(), "(?, ?)")));
+            Object[] params = chunk.stream()
+                    .flatMap(like -> Stream.of(like[0], like[1]))
+                    .toArray();
+            jdbc.query(query, rs -> {
+                existing.computeIfAbsent(rs.getLong("film_id"), id -> new HashSet<>()).add(rs.getLong("user_id"));
+            }, params);
+        }
+        return likes.stream()
+                .filter(like -> !existing.getOrDefault(like[0], Set.of()).contains(like[1]))
+                .toList();
+    }
+
+    public void decrementLikesCountForUser(Long userId) {
+        jdbc.update(DECREMENT_LIKES_COUNT_FOR_USER_QUERY, userId);
+    }
+
+    public List<LikesCountDrift> findLikesCountDrift() {
+        return jdbc.query(FIND_LIKES_COUNT_DRIFT_QUERY, (rs, rowNum) -> new LikesCountDrift(
+                rs.getLong("film_id"),
+                rs.getInt("likes_count"),
+                rs.getInt("actual_count")));
+    }
+
+    public void recalculateLikesCount(Long filmId) {
+        jdbc.update(RECALCULATE_LIKES_COUNT_QUERY, filmId);
     }
 
-    public List<Film> getPopularFilms(Integer count, Long genreId, Integer year) {
+    public List<Long> getPopularFilmIds(Integer count, Long genreId, Integer year) {
+        return jdbc.query(popularQuery(count, genreId, year),
+                (rs, rowNum) -> rs.getLong("film_id"),
+                popularParams(genreId, year));
+    }
+
+    private String popularQuery(Integer count, Long genreId, Integer year) {
         String query;
         if (genreId != null && year != null) {
             query = GET_POPULAR_QUERY_GENRE_AND_YEAR;
-            query += limiter(count);
-            return jdbc.query(query, filmRowMapper, genreId, year);
         } else if (genreId != null) {
             query = GET_POPULAR_QUERY_GENRE;
-            query += limiter(count);
-            return jdbc.query(query, filmRowMapper, genreId);
         } else if (year != null) {
             query = GET_POPULAR_QUERY_YEAR;
-            query += limiter(count);
-            return jdbc.query(query, filmRowMapper, year);
         } else {
             query = GET_POPULAR_QUERY;
-            query += limiter(count);
-            return jdbc.query(query, filmRowMapper);
         }
+        return query + limiter(count);
+    }
+
+    private Object[] popularParams(Long genreId, Integer year) {
+        return Stream.of(genreId, year)
+                .filter(Objects::nonNull)
+                .toArray();
     }
 
     private String limiter(Integer count) {
@@ -190,36 +447,59 @@ public class FilmDbStorage extends BaseDbStorage<Film> implements FilmStorage {
         return limiter;
     }
 
-    public List<Film> getRecommendations(Long userId) {
-        return jdbc.query(GET_FILM_RECOMMENDATIONS, mapper, userId, userId, userId);
-    }
-
-    public List<Film> getDirectorsFilms(Long directorId, String sortBy) {
+    public List<Film> getDirectorsFilms(Long directorId, String sortBy, FilmProjection projection) {
         directorRepository.getById(directorId);
         return switch (SortBy.valueOf(sortBy.toUpperCase())) {
-            case SortBy.LIKES -> jdbc.query(GET_DIRECTORS_FILMS_BY_LIKES, filmRowMapper, directorId);
-            case SortBy.YEAR -> jdbc.query(GET_DIRECTORS_FILMS_BY_YEAR, filmRowMapper, directorId);
+            case SortBy.YEAR -> findManyHydrated(projection, GET_DIRECTORS_FILMS_BY_YEAR, directorId);
             default -> throw new ParameterNotValidException("Параметр сортировки может быть только: likes, year");
         };
     }
 
-    public List<Film> getCommonFilms(Long userId, Long friendId) {
-        return (jdbc.query(GET_COMMON_QUERY, filmRowMapper, userId, friendId));
+    public void deleteFilmById(Long id) {
+        if (jdbc.update(REMOVE_FILM_BY_ID_QUERY, id) == 0) {
+            throw new NotFoundException("Фильм с id " + id + " не найден");
+        }
+        directorRepository.evictFilm(id);
+    }
+
+    private List<Film> findManyHydrated(FilmProjection projection, String query, Object... params) {
+        return hydrate(findMany(query, params), projection);
     }
 
-    public void deleteFilmById(Long id) {
-        getFilmById(id);
-        update(REMOVE_FILM_BY_ID_QUERY, id);
+    private List<Film> hydrate(List<Film> films, FilmProjection projection) {
+        if (films.isEmpty()) {
+            return films;
+        }
+        Set<Long> filmIds = films.stream()
+                .map(Film::getId)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        Set<Long> ratingIds = films.stream()
+                .map(film -> film.getMpa().getId())
+                .collect(Collectors.toSet());
+
+        Map<Long, MpaRating> ratings = mpaRatingRepository.findByIds(ratingIds);
+        Map<Long, Set<Genre>> genres = projection.isGenres() ? genreRepository.findByFilmIds(filmIds) : null;
+        Map<Long, Set<Director>> directors = projection.isDirectors() ? directorRepository.findByFilmIds(filmIds) : null;
+        Map<Long, LikeSet> likes = projection.isLikes() ? findLikesByFilmIds(filmIds) : null;
+
+        for (Film film : films) {
+            film.setMpa(ratings.getOrDefault(film.getMpa().getId(), film.getMpa()));
+            film.setGenres(genres == null ? null : genres.getOrDefault(film.getId(), new LinkedHashSet<>()));
+            film.setDirectors(directors == null ? null : directors.getOrDefault(film.getId(), new LinkedHashSet<>()));
+            film.setLikes(likes == null ? null : likes.getOrDefault(film.getId(), new LikeSet()));
+        }
+        likeWriteQueue.applyPending(films);
+        log.debug("Загружены связи для {} фильмов", films.size());
+        return films;
     }
 
-    public List<Film> searchFilms(String query, String[] by) {
-        SearchType searchType = checkSearchParams(by);
-        return switch (searchType) {
-            case SearchType.BOTH -> jdbc.query(GET_SEARCH_BY_BOTH_QUERY, filmRowMapper, query, query);
-            case SearchType.TITLE -> jdbc.query(GET_SEARCH_BY_TITLE_QUERY, filmRowMapper, query);
-            case SearchType.DIRECTOR -> jdbc.query(GET_SEARCH_BY_DIRECTOR_QUERY, filmRowMapper, query);
-            default -> throw new ValidationException("Ошибка при определении типа поиска");
-        };
+    private Map<Long, LikeSet> findLikesByFilmIds(Collection<Long> filmIds) {
+        Map<Long, LikeSet> likesByFilm = new HashMap<>();
+        queryByIds(FIND_LIKES_BY_FILMS_QUERY, filmIds, rs -> likesByFilm
+                .computeIfAbsent(rs.getLong("film_id"), id -> new LikeSet())
+                .add(rs.getLong("user_id")));
+        likesByFilm.values().forEach(LikeSet::trimToSize);
+        return likesByFilm;
     }
 
     private Film setMpaAndGenresAndDirectorsToFilm(Film film) {
@@ -242,58 +522,88 @@ public class FilmDbStorage extends BaseDbStorage<Film> implements FilmStorage {
         return film;
     }
 
-    private void addGenresAndDirectorsToDb(Film film) {
-        List<Long> genreIds = new ArrayList<>(film.getGenres().stream()
-                .map(Genre::getId)
-                .toList());
-        genreRepository.removeAllGenresFromFilm(film.getId());
-        genreRepository.addGenresToFilm(film.getId(), genreIds);
-
-        List<Long> directorsIds = new ArrayList<>(film.getDirectors().stream()
-                .map(Director::getId)
-                .toList());
-        directorRepository.removeAllDirectorsFromFilm(film.getId());
-        directorRepository.addDirectorsToFilm(film.getId(), directorsIds);
+    private void insertFilms(List<Film> films) {
+        GeneratedKeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbc.batchUpdate(connection -> connection.prepareStatement(INSERT_QUERY, new String[]{"film_id"}),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        Film film = films.get(i);
+                        ps.setString(1, film.getName());
+                        ps.setString(2, film.getDescription());
+                        ps.setObject(3, film.getReleaseDate());
+                        ps.setInt(4, film.getDuration());
+                        ps.setLong(5, film.getMpa().getId());
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return films.size();
+                    }
+                }, keyHolder);
+
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        if (keys.size() != films.size()) {
+            log.error("Получено {} ключей для {} добавленных фильмов", keys.size(), films.size());
+            throw new InternalServerException("Не удалось сохранить данные");
+        }
+        for (int i = 0; i < films.size(); i++) {
+            films.get(i).setId(((Number) keys.get(i).get("film_id")).longValue());
+        }
+    }
 
+    private FilmLinks findLinks(Long filmId) {
+        FilmLinks links = new FilmLinks(new HashSet<>(), new HashSet<>());
+        jdbc.query(FIND_LINKS_QUERY, rs -> {
+            Set<Long> ids = "GENRE".equals(rs.getString("link_type")) ? links.genreIds() : links.directorIds();
+            ids.add(rs.getLong("link_id"));
+        }, filmId, filmId);
+        return links;
     }
 
-    private void validateFilmReleaseDate(Film film) {
-        if (film.getReleaseDate().isBefore(MIN_RELEASE_DATE)) {
-            log.error("Ошибка при валидации фильма: дата релиза фильма {} раньше {}", film.getName(), MIN_RELEASE_DATE);
-            throw new ValidationException("Дата релиза фильма — не раньше " + MIN_RELEASE_DATE);
-        }
+    private void writeGenres(Long filmId, Set<Long> existing, Set<Long> requested) {
+        genreRepository.updateFilmGenres(filmId, difference(requested, existing), difference(existing, requested));
     }
 
-    private void validateGenres(List<Long> genreIds) {
-        boolean isValid = genreIds.stream()
-                .allMatch(id -> id >= 1 && id <= 6);
+    private void writeDirectors(Long filmId, Set<Long> existing, Set<Long> requested) {
+        directorRepository.updateFilmDirectors(filmId, requested,
+                difference(requested, existing), difference(existing, requested));
+    }
 
-        if (!isValid) {
-            throw new NotFoundException("Id жанров должны быть в диапазоне от 1 до 6");
-        }
+    private static Set<Long> genreIds(Set<Genre> genres) {
+        return genres.stream()
+                .map(Genre::getId)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
     }
 
-    private SearchType checkSearchParams(String[] by) {
-        if (by == null || by.length == 0 || by.length > 2) {
-            log.error("Недопустимое количество параметров by: {}", by != null ? by.length : "null");
-            throw new ParameterNotValidException("Параметр by должен содержать 1 или 2 значения (title/director)");
-        }
+    private static Set<Long> directorIds(Set<Director> directors) {
+        return directors.stream()
+                .map(Director::getId)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
 
-        Set<String> params = Arrays.stream(by)
-                .map(String::toLowerCase)
-                .collect(Collectors.toSet());
+    private static Set<Long> difference(Set<Long> from, Set<Long> excluded) {
+        Set<Long> result = new LinkedHashSet<>(from);
+        result.removeAll(excluded);
+        return result;
+    }
 
-        if (params.size() == 2 && params.contains("title") && params.contains("director")) {
-            return SearchType.BOTH;
-        }
-        if (params.size() == 1) {
-            if (params.contains("title")) return SearchType.TITLE;
-            if (params.contains("director")) return SearchType.DIRECTOR;
+    private void validateReleaseDate(LocalDate releaseDate) {
+        if (releaseDate.isBefore(MIN_RELEASE_DATE)) {
+            log.error("Ошибка при валидации фильма: дата релиза {} раньше {}", releaseDate, MIN_RELEASE_DATE);
+            throw new ValidationException("Дата релиза фильма — не раньше " + MIN_RELEASE_DATE);
         }
+    }
+
+    private void validateGenres(Collection<Long> genreIds) {
+        genreIds.stream()
+                .filter(id -> !genreRepository.existsById(id))
+                .findFirst()
+                .ifPresent(id -> {
+                    throw new NotFoundException("Жанр с id " + id + " не найден");
+                });
+    }
 
-        log.error("Недопустимые значения параметра by: {}", Arrays.toString(by));
-        throw new ParameterNotValidException(
-                "Параметр by должен содержать только 'title' и/или 'director'"
-        );
+    private record FilmLinks(Set<Long> genreIds, Set<Long> directorIds) {
     }
 }
@@ -1,43 +1,53 @@
 package ru.yandex.practicum.filmorate.dal;
 
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Repository;
+import ru.yandex.practicum.filmorate.cache.ReferenceData;
 import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Genre;
 
 import java.util.*;
-import java.util.stream.Stream;
 
 @Slf4j
 @Repository
 public class GenreRepository extends BaseDbStorage<Genre> {
     private static final String FIND_ALL_QUERY = "SELECT * FROM genres ORDER BY genre_id";
-    private static final String FIND_BY_ID_QUERY = "SELECT * FROM genres WHERE genre_id = ?";
-    private static final String FIND_BY_FILM_QUERY = """
-            SELECT g.*
-            FROM genres g
-            JOIN film_genres fg ON g.genre_id = fg.genre_id
-            WHERE fg.film_id = ?
-            ORDER BY g.genre_id""";
-    private static final String DELETE_GENRES_QUERY = "DELETE FROM film_genres WHERE film_id = ?";
-    private static final String FIND_BY_IDS_QUERY = "SELECT * FROM genres WHERE genre_id IN (%s)";
-    private static final String INSERT_GENRES_QUERY = "INSERT INTO film_genres(film_id, genre_id) VALUES %s";
+    private static final String FIND_BY_FILMS_QUERY = """
+            SELECT film_id, genre_id
+            FROM film_genres
+            WHERE film_id IN (%s)
+            ORDER BY film_id, genre_id""";
+    private static final String INSERT_FILM_GENRE_QUERY = "INSERT INTO film_genres(film_id, genre_id) VALUES (?, ?)";
+    private static final String DELETE_FILM_GENRE_QUERY = "DELETE FROM film_genres WHERE film_id = ? AND genre_id = ?";
 
-    private final JdbcTemplate jdbc;
+    private final ReferenceData<Genre> genres = new ReferenceData<>(() -> findMany(FIND_ALL_QUERY), Genre::getId);
 
     public GenreRepository(JdbcTemplate jdbc, RowMapper<Genre> mapper) {
         super(jdbc, mapper);
-        this.jdbc = jdbc;
+    }
+
+    @PostConstruct
+    @Scheduled(initialDelayString = "${filmorate.reference.refresh-interval:PT1H}",
+            fixedDelayString = "${filmorate.reference.refresh-interval:PT1H}")
+    public void refresh() {
+        genres.refresh();
+        log.debug("Справочник жанров обновлён");
     }
 
     public List<Genre> findAll() {
-        return findMany(FIND_ALL_QUERY);
+        return genres.getAll();
     }
 
     public Optional<Genre> findById(Long id) {
-        return findOne(FIND_BY_ID_QUERY, id);
+        return genres.get(id);
+    }
+
+    public boolean existsById(Long id) {
+        return genres.contains(id);
     }
 
     public Genre getById(Long id) {
@@ -46,41 +56,31 @@ public class GenreRepository extends BaseDbStorage<Genre> {
                 new NotFoundException("Жанр  с id " + id + " не найден"));
     }
 
-    public List<Genre> findByFilmId(Long filmId) {
-        return findMany(FIND_BY_FILM_QUERY, filmId);
+    public Map<Long, Set<Genre>> findByFilmIds(Collection<Long> filmIds) {
+        Map<Long, Set<Genre>> genresByFilm = new HashMap<>();
+        queryByIds(FIND_BY_FILMS_QUERY, filmIds, rs -> {
+            long filmId = rs.getLong("film_id");
+            genres.get(rs.getLong("genre_id")).ifPresent(genre -> genresByFilm
+                    .computeIfAbsent(filmId, id -> new LinkedHashSet<>())
+                    .add(genre));
+        });
+        return genresByFilm;
     }
 
     public Set<Genre> findByIds(List<Long> ids) {
-        if (ids.isEmpty()) {
-            return new HashSet<>();
-        }
-
-        String placeholders = String.join(",", Collections.nCopies(ids.size(), "?"));
-        String query = String.format(FIND_BY_IDS_QUERY, placeholders);
-
-        Object[] params = ids.toArray();
-
-        return new LinkedHashSet<>(findMany(query, params));
+        return new LinkedHashSet<>(genres.getAll(new TreeSet<>(ids)).values());
     }
 
-    public void addGenresToFilm(Long filmId, List<Long> ids) {
-        if (ids.isEmpty()) {
+    public void updateFilmGenres(Long filmId, Collection<Long> added, Collection<Long> removed) {
+        if (added.isEmpty() && removed.isEmpty()) {
             return;
         }
-
-        String placeholders = String.join(",", Collections.nCopies(ids.size(), "(?, ?)"));
-        String query = String.format(INSERT_GENRES_QUERY, placeholders);
-
-        Object[] params = ids.stream()
-                .flatMap(genreId -> Stream.of(filmId, genreId))
-                .toArray();
-
-        log.info("Добавление жанров {} к фильму {}", ids, filmId);
-        jdbc.update(query, params);
-        log.info("Жанры успешно добавлены");
+        log.info("Изменение жанров фильма {}: добавлены {}, удалены {}", filmId, added, removed);
+        batchUpdateLinks(DELETE_FILM_GENRE_QUERY, filmId, removed);
+        batchUpdateLinks(INSERT_FILM_GENRE_QUERY, filmId, added);
     }
 
-    public void removeAllGenresFromFilm(Long filmId) {
-        jdbc.update(DELETE_GENRES_QUERY, filmId);
+    public void addToFilms(Map<Long, Set<Long>> genreIdsByFilm, int batchSize) {
+        batchUpdateLinks(INSERT_FILM_GENRE_QUERY, genreIdsByFilm, batchSize);
     }
 }
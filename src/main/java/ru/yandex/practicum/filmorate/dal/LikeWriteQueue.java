@@ -0,0 +1,328 @@
+package ru.yandex.practicum.filmorate.dal;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
+import ru.yandex.practicum.filmorate.exceptions.ServiceUnavailableException;
+import ru.yandex.practicum.filmorate.model.Event;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.LikeSet;
+import ru.yandex.practicum.filmorate.model.enums.EventOperation;
+import ru.yandex.practicum.filmorate.model.enums.EventType;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+
+@Slf4j
+@Component
+public class LikeWriteQueue {
+    private static final Duration FLUSH_WAIT = Duration.ofSeconds(5);
+
+    private final boolean enabled;
+    private final int capacity;
+    private final int batchSize;
+    private final long maxDelayNanos;
+    private final long offerTimeoutNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition ready = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private final Condition written = lock.newCondition();
+
+    private Map<Long, Map<Long, PendingLike>> pending = new HashMap<>();
+    private Map<Long, Map<Long, PendingLike>> inFlight = new HashMap<>();
+    private List<Event> pendingEvents = new ArrayList<>();
+    private List<Event> inFlightEvents = new ArrayList<>();
+    private long enqueuedSeq;
+    private long drainedSeq;
+    private long writtenSeq;
+    private long oldestPendingNanos;
+    private boolean flushRequested;
+    private boolean closed;
+
+    public LikeWriteQueue(@Value("${filmorate.likes.write-behind.enabled:false}") boolean enabled,
+                          @Value("${filmorate.likes.write-behind.capacity:10000}") int capacity,
+                          @Value("${filmorate.likes.write-behind.batch-size:1000}") int batchSize,
+                          @Value("${filmorate.likes.write-behind.max-delay:PT0.05S}") Duration maxDelay,
+                          @Value("${filmorate.likes.write-behind.offer-timeout:PT0.1S}") Duration offerTimeout) {
+        this.enabled = enabled;
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.maxDelayNanos = maxDelay.toNanos();
+        this.offerTimeoutNanos = offerTimeout.toNanos();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean submit(Long filmId, Long userId, EventOperation operation,
+                          BooleanSupplier storedState, Runnable onChange) {
+        lock.lock();
+        try {
+            awaitCapacity();
+            PendingLike entry = pending.getOrDefault(filmId, Map.of()).get(userId);
+            boolean liked;
+            if (entry != null) {
+                liked = entry.liked;
+            } else {
+                PendingLike flying = inFlight.getOrDefault(filmId, Map.of()).get(userId);
+                liked = flying != null ? flying.liked : storedState.getAsBoolean();
+            }
+            boolean like = operation == EventOperation.ADD;
+            if (!like && !liked) {
+                throw new NotFoundException("Лайк не найден");
+            }
+            if (liked != like) {
+                if (entry == null) {
+                    entry = new PendingLike(liked);
+                    pending.computeIfAbsent(filmId, id -> new HashMap<>()).put(userId, entry);
+                }
+                entry.liked = like;
+                onChange.run();
+            }
+            if (pendingEvents.isEmpty()) {
+                oldestPendingNanos = System.nanoTime();
+            }
+            pendingEvents.add(new Event(null, System.currentTimeMillis(), userId, EventType.LIKE, operation, filmId));
+            enqueuedSeq++;
+            if (pendingEvents.size() >= batchSize) {
+                ready.signal();
+            }
+            return liked != like;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void applyPending(Collection<Film> films) {
+        if (!enabled) {
+            return;
+        }
+        lock.lock();
+        try {
+            if (pending.isEmpty() && inFlight.isEmpty()) {
+                return;
+            }
+            for (Film film : films) {
+                Map<Long, PendingLike> flying = inFlight.getOrDefault(film.getId(), Map.of());
+                Map<Long, PendingLike> queued = pending.getOrDefault(film.getId(), Map.of());
+                if (flying.isEmpty() && queued.isEmpty()) {
+                    continue;
+                }
+                LikeSet likes = film.getLikes();
+                if (likes != null) {
+                    flying.forEach((userId, like) -> like.applyTo(likes, userId));
+                    queued.forEach((userId, like) -> like.applyTo(likes, userId));
+                    film.setLikesCount(likes.size());
+                } else if (film.getLikesCount() != null) {
+                    int delta = flying.values().stream().mapToInt(PendingLike::delta).sum()
+                            + queued.values().stream().mapToInt(PendingLike::delta).sum();
+                    film.setLikesCount(film.getLikesCount() + delta);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void awaitWritten(Long userId) {
+        if (!enabled) {
+            return;
+        }
+        lock.lock();
+        try {
+            long target = 0;
+            if (pendingEvents.stream().anyMatch(event -> event.getUserId().equals(userId))) {
+                target = enqueuedSeq;
+            } else if (inFlightEvents.stream().anyMatch(event -> event.getUserId().equals(userId))) {
+                target = drainedSeq;
+            }
+            long remaining = FLUSH_WAIT.toNanos();
+            while (writtenSeq < target && remaining > 0) {
+                flushRequested = true;
+                ready.signal();
+                remaining = written.awaitNanos(remaining);
+            }
+            if (writtenSeq < target) {
+                log.warn("Не дождались записи лайков пользователя {}", userId);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void discardFilm(Long filmId) {
+        if (!enabled) {
+            return;
+        }
+        lock.lock();
+        try {
+            pending.remove(filmId);
+            inFlight.remove(filmId);
+            if (pendingEvents.removeIf(event -> event.getEntityId().equals(filmId))) {
+                notFull.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void discardUser(Long userId) {
+        if (!enabled) {
+            return;
+        }
+        lock.lock();
+        try {
+            pending.values().forEach(likes -> likes.remove(userId));
+            inFlight.values().forEach(likes -> likes.remove(userId));
+            if (pendingEvents.removeIf(event -> event.getUserId().equals(userId))) {
+                notFull.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Batch take() throws InterruptedException {
+        lock.lock();
+        try {
+            while (true) {
+                if (!pendingEvents.isEmpty()) {
+                    long waited = System.nanoTime() - oldestPendingNanos;
+                    if (closed || flushRequested || pendingEvents.size() >= batchSize || waited >= maxDelayNanos) {
+                        break;
+                    }
+                    ready.awaitNanos(maxDelayNanos - waited);
+                } else if (closed) {
+                    return null;
+                } else {
+                    ready.await();
+                }
+            }
+            inFlight = pending;
+            inFlightEvents = pendingEvents;
+            pending = new HashMap<>();
+            pendingEvents = new ArrayList<>();
+            drainedSeq = enqueuedSeq;
+            flushRequested = false;
+            notFull.signalAll();
+
+            List<long[]> added = new ArrayList<>();
+            List<long[]> removed = new ArrayList<>();
+            inFlight.forEach((filmId, likes) -> likes.forEach((userId, like) -> {
+                if (like.delta() > 0) {
+                    added.add(new long[]{filmId, userId});
+                } else if (like.delta() < 0) {
+                    removed.add(new long[]{filmId, userId});
+                }
+            }));
+            return new Batch(added, removed, inFlightEvents, drainedSeq);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean isIdle() {
+        lock.lock();
+        try {
+            return pendingEvents.isEmpty() && inFlightEvents.isEmpty() && pending.isEmpty() && inFlight.isEmpty();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void complete(Batch batch, Collection<long[]> dropped, LikeRestorer restorer) {
+        lock.lock();
+        try {
+            writtenSeq = batch.seq();
+            for (long[] like : dropped) {
+                PendingLike flying = inFlight.getOrDefault(like[0], Map.of()).get(like[1]);
+                if (flying == null) {
+                    continue;
+                }
+                PendingLike queued = pending.getOrDefault(like[0], Map.of()).get(like[1]);
+                if (queued != null) {
+                    queued.persisted = flying.persisted;
+                } else {
+                    restorer.restore(like[0], like[1], flying.persisted);
+                }
+            }
+            inFlight = new HashMap<>();
+            inFlightEvents = new ArrayList<>();
+            written.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            ready.signalAll();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void awaitCapacity() {
+        long remaining = offerTimeoutNanos;
+        try {
+            while (!closed && pendingEvents.size() >= capacity && remaining > 0) {
+                flushRequested = true;
+                ready.signal();
+                remaining = notFull.awaitNanos(remaining);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceUnavailableException("Очередь лайков недоступна");
+        }
+        if (closed) {
+            throw new ServiceUnavailableException("Очередь лайков закрыта");
+        }
+        if (pendingEvents.size() >= capacity) {
+            log.warn("Очередь лайков переполнена: {} операций", pendingEvents.size());
+            throw new ServiceUnavailableException("Очередь лайков переполнена, повторите запрос позже");
+        }
+    }
+
+    public record Batch(List<long[]> added, List<long[]> removed, List<Event> events, long seq) {
+        public boolean isEmpty() {
+            return added.isEmpty() && removed.isEmpty() && events.isEmpty();
+        }
+    }
+
+    public interface LikeRestorer {
+        void restore(long filmId, long userId, boolean liked);
+    }
+
+    private static class PendingLike {
+        private boolean persisted;
+        private boolean liked;
+
+        PendingLike(boolean persisted) {
+            this.persisted = persisted;
+            this.liked = persisted;
+        }
+
+        int delta() {
+            return (liked ? 1 : 0) - (persisted ? 1 : 0);
+        }
+
+        void applyTo(LikeSet likes, long userId) {
+            if (liked) {
+                likes.add(userId);
+            } else {
+                likes.remove(userId);
+            }
+        }
+    }
+}
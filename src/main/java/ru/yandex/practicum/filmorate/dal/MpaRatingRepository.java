@@ -1,31 +1,42 @@
 package ru.yandex.practicum.filmorate.dal;
 
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Repository;
+import ru.yandex.practicum.filmorate.cache.ReferenceData;
 import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
 import ru.yandex.practicum.filmorate.model.MpaRating;
 
-import java.util.List;
-import java.util.Optional;
+import java.util.*;
 
 @Slf4j
 @Repository
 public class MpaRatingRepository extends BaseDbStorage<MpaRating> {
     private static final String FIND_ALL_QUERY = "SELECT * FROM ratings ORDER BY rating_id";
-    private static final String FIND_BY_ID_QUERY = "SELECT * FROM ratings WHERE rating_id = ?";
+
+    private final ReferenceData<MpaRating> ratings = new ReferenceData<>(() -> findMany(FIND_ALL_QUERY), MpaRating::getId);
 
     public MpaRatingRepository(JdbcTemplate jdbc, RowMapper<MpaRating> mapper) {
         super(jdbc, mapper);
     }
 
+    @PostConstruct
+    @Scheduled(initialDelayString = "${filmorate.reference.refresh-interval:PT1H}",
+            fixedDelayString = "${filmorate.reference.refresh-interval:PT1H}")
+    public void refresh() {
+        ratings.refresh();
+        log.debug("Справочник рейтингов MPA обновлён");
+    }
+
     public List<MpaRating> findAll() {
-        return findMany(FIND_ALL_QUERY);
+        return ratings.getAll();
     }
 
     public Optional<MpaRating> findById(Long id) {
-        return findOne(FIND_BY_ID_QUERY, id);
+        return ratings.get(id);
     }
 
     public MpaRating getById(Long id) {
@@ -33,4 +44,8 @@ public class MpaRatingRepository extends BaseDbStorage<MpaRating> {
         return findById(id).orElseThrow(() ->
                 new NotFoundException("MPA rating с id " + id + " не найден"));
     }
-}
\ No newline at end of file
+
+    public Map<Long, MpaRating> findByIds(Collection<Long> ids) {
+        return ratings.getAll(ids);
+    }
+}
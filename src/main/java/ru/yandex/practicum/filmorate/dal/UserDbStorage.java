@@ -3,21 +3,28 @@ package ru.yandex.practicum.filmorate.dal;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.dal.mappers.UserRowMapper;
 import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
 import ru.yandex.practicum.filmorate.exceptions.ValidationException;
-import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 
-import java.util.List;
-import java.util.Optional;
+import java.io.IOException;
+import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.LongConsumer;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Repository
 public class UserDbStorage extends BaseDbStorage<User> implements UserStorage {
     private static final String FIND_ALL_QUERY = "SELECT * FROM users";
+    private static final String FIND_PAGE_QUERY = "SELECT * FROM users WHERE user_id > ? ORDER BY user_id LIMIT ?";
     private static final String FIND_BY_ID_QUERY = "SELECT * FROM users WHERE user_id = ?";
+    private static final String FIND_EXISTING_IDS_QUERY = "SELECT user_id FROM users WHERE user_id IN (%s)";
+    private static final String EXISTS_BY_ID_QUERY = "SELECT EXISTS(SELECT 1 FROM users WHERE user_id = ?)";
+    private static final String FIND_ALL_IDS_QUERY = "SELECT user_id FROM users";
     private static final String FIND_BY_EMAIL_QUERY = "SELECT * FROM users WHERE email = ?";
     private static final String INSERT_QUERY = """
             INSERT INTO users(email, login, name, birthday)
@@ -37,14 +44,9 @@ public class UserDbStorage extends BaseDbStorage<User> implements UserStorage {
     private static final String REMOVE_FRIEND_QUERY = """
             DELETE FROM friends
             WHERE (user_id = ? AND friend_id = ?)""";
-    private static final String GET_FRIENDS_QUERY = """
-            SELECT u.* , f.status FROM users u
-            JOIN friends f ON u.user_id = f.friend_id
-            WHERE f.user_id = ?""";
-    private static final String GET_COMMON_FRIENDS_QUERY = """
-            SELECT u.* FROM users u
-            JOIN friends f1 ON u.user_id = f1.friend_id AND f1.user_id = ?
-            JOIN friends f2 ON u.user_id = f2.friend_id AND f2.user_id = ?""";
+    private static final String FIND_BY_IDS_QUERY = "SELECT * FROM users WHERE user_id IN (%s)";
+    private static final String FIND_FRIENDS_BY_USER_IDS_QUERY = "SELECT user_id, friend_id, status FROM friends WHERE user_id IN (%s)";
+    private static final String FIND_ALL_FRIENDSHIPS_QUERY = "SELECT user_id, friend_id FROM friends ORDER BY user_id, friend_id";
     private static final String UNCONFIRMED_FRIEND_QUERY = """
             UPDATE friends
             SET status = 'UNCONFIRMED'
@@ -54,6 +56,8 @@ public class UserDbStorage extends BaseDbStorage<User> implements UserStorage {
             WHERE user_id = ?
             """;
 
+    private static final int STREAM_CHUNK_SIZE = 500;
+
     private final JdbcTemplate jdbc;
     private final FilmDbStorage filmStorage;
 
@@ -65,15 +69,91 @@ public class UserDbStorage extends BaseDbStorage<User> implements UserStorage {
 
     @Override
     public List<User> getUsers() {
-        return findMany(FIND_ALL_QUERY);
+        return withFriends(findMany(FIND_ALL_QUERY));
+    }
+
+    public void streamUsers(RowSink<User> sink) throws IOException {
+        long afterId = 0;
+        List<User> chunk;
+        do {
+            chunk = getUsersPage(afterId, STREAM_CHUNK_SIZE);
+            for (User user : chunk) {
+                sink.accept(user);
+            }
+            if (!chunk.isEmpty()) {
+                afterId = chunk.getLast().getId();
+            }
+        } while (chunk.size() == STREAM_CHUNK_SIZE);
+    }
+
+    public List<User> getUsersPage(long afterId, int limit) {
+        return withFriends(findMany(FIND_PAGE_QUERY, afterId, limit));
     }
 
     @Override
     public User getUserById(Long id) {
+        User user = getSlimUserById(id);
+        withFriends(List.of(user));
+        return user;
+    }
+
+    public User getSlimUserById(Long id) {
         return findOne(FIND_BY_ID_QUERY, id)
                 .orElseThrow(() -> new NotFoundException("Пользователь с id " + id + " не найден"));
     }
 
+    public boolean existsById(Long id) {
+        return Boolean.TRUE.equals(jdbc.queryForObject(EXISTS_BY_ID_QUERY, Boolean.class, id));
+    }
+
+    public void forEachUserId(LongConsumer consumer) {
+        jdbc.query(FIND_ALL_IDS_QUERY, rs -> {
+            consumer.accept(rs.getLong("user_id"));
+        });
+    }
+
+    public Set<Long> findExistingIds(Collection<Long> ids) {
+        Set<Long> existing = new HashSet<>();
+        queryByIds(FIND_EXISTING_IDS_QUERY, ids, rs -> {
+            existing.add(rs.getLong("user_id"));
+        });
+        return existing;
+    }
+
+    public List<User> getUsersByIds(long[] ids) {
+        Map<Long, User> usersById = new HashMap<>();
+        queryByIds(FIND_BY_IDS_QUERY, Arrays.stream(ids).boxed().toList(), rs -> {
+            User user = mapper.mapRow(rs, rs.getRow());
+            usersById.put(user.getId(), user);
+        });
+        return Arrays.stream(ids)
+                .mapToObj(usersById::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    private List<User> withFriends(List<User> users) {
+        if (users.isEmpty()) {
+            return users;
+        }
+        Map<Long, User> usersById = new HashMap<>();
+        users.forEach(user -> {
+            user.setFriends(new HashMap<>());
+            usersById.put(user.getId(), user);
+        });
+        queryByIds(FIND_FRIENDS_BY_USER_IDS_QUERY, usersById.keySet(), rs -> {
+            usersById.get(rs.getLong("user_id")).getFriends()
+                    .put(rs.getLong("friend_id"), User.FriendshipStatus.valueOf(rs.getString("status")));
+        });
+        return users;
+    }
+
+    public void forEachFriendship(BiConsumer<Long, Long> consumer) {
+        jdbc.query(FIND_ALL_FRIENDSHIPS_QUERY, rs -> {
+            consumer.accept(rs.getLong("user_id"), rs.getLong("friend_id"));
+        });
+    }
+
     public Optional<User> findByEmail(String email) {
         return findOne(FIND_BY_EMAIL_QUERY, email);
     }
@@ -94,15 +174,17 @@ public class UserDbStorage extends BaseDbStorage<User> implements UserStorage {
 
     @Override
     public User updateUser(User user) {
-        getUserById(user.getId());
         validateUser(user);
 
-        update(UPDATE_QUERY,
+        int updated = jdbc.update(UPDATE_QUERY,
                 user.getEmail(),
                 user.getLogin(),
                 user.getName(),
                 user.getBirthday(),
                 user.getId());
+        if (updated == 0) {
+            throw new NotFoundException("Пользователь с id " + user.getId() + " не найден");
+        }
 
         return user;
     }
@@ -120,33 +202,17 @@ public class UserDbStorage extends BaseDbStorage<User> implements UserStorage {
     }
 
     public void removeFriend(Long userId, Long friendId) {
-        getUserById(userId);
-        getUserById(friendId);
-
         jdbc.update(REMOVE_FRIEND_QUERY,
                 userId, friendId);
         jdbc.update(UNCONFIRMED_FRIEND_QUERY, friendId, userId);
     }
 
-    public List<User> getFriends(Long userId) {
-        getUserById(userId);
-        return jdbc.query(GET_FRIENDS_QUERY, mapper, userId);
-    }
-
-    public List<User> getCommonFriends(Long userId, Long otherId) {
-        getUserById(userId);
-        getUserById(otherId);
-        return jdbc.query(GET_COMMON_FRIENDS_QUERY, mapper, userId, otherId);
-    }
-
+    @Transactional
     public void deleteUserById(Long id) {
-        getUserById(id);
-        update(REMOVE_USER_BY_ID_QUERY, id);
-    }
-
-    public List<Film> showRecommendations(Long userId) {
-        getUserById(userId);
-        return filmStorage.getRecommendations(userId);
+        filmStorage.decrementLikesCountForUser(id);
+        if (jdbc.update(REMOVE_USER_BY_ID_QUERY, id) == 0) {
+            throw new NotFoundException("Пользователь с id " + id + " не найден");
+        }
     }
 
     private void validateUser(User user) {
@@ -0,0 +1,8 @@
+package ru.yandex.practicum.filmorate.exceptions;
+
+
+public class ServiceUnavailableException extends RuntimeException {
+    public ServiceUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,41 @@
+package ru.yandex.practicum.filmorate.index;
+
+import java.util.Arrays;
+
+class AlsModel {
+    private final long[] userIds;
+    private final long[] filmIds;
+    private final float[] userFactors;
+    private final float[] filmFactors;
+    private final int rank;
+
+    AlsModel(long[] userIds, long[] filmIds, float[] userFactors, float[] filmFactors, int rank) {
+        this.userIds = userIds;
+        this.filmIds = filmIds;
+        this.userFactors = userFactors;
+        this.filmFactors = filmFactors;
+        this.rank = rank;
+    }
+
+    int userIndex(long userId) {
+        return Arrays.binarySearch(userIds, userId);
+    }
+
+    long filmId(int index) {
+        return filmIds[index];
+    }
+
+    int filmCount() {
+        return filmIds.length;
+    }
+
+    int userCount() {
+        return userIds.length;
+    }
+
+    float[] scores(int userIndex, FactorScorer scorer) {
+        float[] scores = new float[filmIds.length];
+        scorer.scoreAll(userFactors, userIndex * rank, filmFactors, rank, scores);
+        return scores;
+    }
+}
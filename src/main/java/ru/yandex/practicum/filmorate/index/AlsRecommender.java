@@ -0,0 +1,87 @@
+package ru.yandex.practicum.filmorate.index;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.LikeSet;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+@Slf4j
+@Component
+public class AlsRecommender implements RecommendationStrategy {
+    public static final String NAME = "als";
+
+    private final LikeMatrix likeMatrix;
+    private final AlsTrainer trainer;
+    private final FactorScorer scorer = FactorScorers.create();
+    private volatile AlsModel model;
+    private volatile long modelVersion;
+
+    public AlsRecommender(LikeMatrix likeMatrix,
+                          @Value("${filmorate.recommendations.als.factors:32}") int factors,
+                          @Value("${filmorate.recommendations.als.iterations:10}") int iterations,
+                          @Value("${filmorate.recommendations.als.regularization:0.1}") double regularization,
+                          @Value("${filmorate.recommendations.als.alpha:40}") double alpha) {
+        this.likeMatrix = likeMatrix;
+        this.trainer = new AlsTrainer(factors, iterations, regularization, alpha, ForkJoinPool.commonPool());
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Scheduled(initialDelayString = "${filmorate.recommendations.als.initial-delay:PT10S}",
+            fixedDelayString = "${filmorate.recommendations.als.train-interval:PT6H}")
+    public void train() {
+        log.info("Обучение ALS-модели рекомендаций");
+        long started = System.nanoTime();
+        AlsModel trained = trainer.train(likeMatrix.snapshotUserFilms(() -> {
+        }));
+        model = trained;
+        modelVersion++;
+        log.info("ALS-модель обучена за {} мс: {} пользователей, {} фильмов",
+                (System.nanoTime() - started) / 1_000_000, trained.userCount(), trained.filmCount());
+    }
+
+    @Override
+    public long getModelVersion() {
+        return modelVersion;
+    }
+
+    @Override
+    public List<Long> recommend(Long userId, int size) {
+        AlsModel current = model;
+        if (current == null) {
+            log.debug("ALS-модель ещё не обучена");
+            return Collections.emptyList();
+        }
+        int userIndex = current.userIndex(userId);
+        if (userIndex < 0) {
+            return Collections.emptyList();
+        }
+        LikeSet liked = LikeSet.of(likeMatrix.getUserFilms(userId));
+        float[] scores = current.scores(userIndex, scorer);
+
+        PriorityQueue<Integer> best = new PriorityQueue<>(Comparator.comparingDouble(film -> scores[film]));
+        for (int film = 0; film < scores.length; film++) {
+            if (liked.contains(current.filmId(film))) {
+                continue;
+            }
+            if (best.size() < size) {
+                best.offer(film);
+            } else if (scores[film] > scores[best.peek()]) {
+                best.poll();
+                best.offer(film);
+            }
+        }
+        Long[] result = new Long[best.size()];
+        for (int i = result.length - 1; i >= 0; i--) {
+            result[i] = current.filmId(best.poll());
+        }
+        return Arrays.asList(result);
+    }
+}
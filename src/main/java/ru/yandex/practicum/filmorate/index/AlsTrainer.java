@@ -0,0 +1,169 @@
+package ru.yandex.practicum.filmorate.index;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+class AlsTrainer {
+    private static final int PARALLEL_THRESHOLD = 64;
+
+    private final int rank;
+    private final int iterations;
+    private final double regularization;
+    private final double alpha;
+    private final ForkJoinPool pool;
+
+    AlsTrainer(int rank, int iterations, double regularization, double alpha, ForkJoinPool pool) {
+        this.rank = rank;
+        this.iterations = iterations;
+        this.regularization = regularization;
+        this.alpha = alpha;
+        this.pool = pool;
+    }
+
+    AlsModel train(Map<Long, long[]> userFilms) {
+        long[] userIds = userFilms.keySet().stream().mapToLong(Long::longValue).sorted().toArray();
+        long[] filmIds = userFilms.values().stream()
+                .flatMapToLong(Arrays::stream)
+                .distinct()
+                .sorted()
+                .toArray();
+
+        int[][] filmsOfUser = new int[userIds.length][];
+        int[] filmLikes = new int[filmIds.length];
+        for (int u = 0; u < userIds.length; u++) {
+            long[] films = userFilms.get(userIds[u]);
+            filmsOfUser[u] = new int[films.length];
+            for (int i = 0; i < films.length; i++) {
+                int film = Arrays.binarySearch(filmIds, films[i]);
+                filmsOfUser[u][i] = film;
+                filmLikes[film]++;
+            }
+        }
+        int[][] usersOfFilm = new int[filmIds.length][];
+        for (int f = 0; f < filmIds.length; f++) {
+            usersOfFilm[f] = new int[filmLikes[f]];
+        }
+        int[] filled = new int[filmIds.length];
+        for (int u = 0; u < userIds.length; u++) {
+            for (int film : filmsOfUser[u]) {
+                usersOfFilm[film][filled[film]++] = u;
+            }
+        }
+
+        float[] userFactors = new float[userIds.length * rank];
+        float[] filmFactors = new float[filmIds.length * rank];
+        Random random = new Random(42);
+        for (int i = 0; i < filmFactors.length; i++) {
+            filmFactors[i] = (float) (random.nextGaussian() * 0.01);
+        }
+
+        for (int iteration = 0; iteration < iterations; iteration++) {
+            solve(userFactors, filmFactors, filmsOfUser);
+            solve(filmFactors, userFactors, usersOfFilm);
+        }
+        return new AlsModel(userIds, filmIds, userFactors, filmFactors, rank);
+    }
+
+    private void solve(float[] target, float[] fixed, int[][] interactions) {
+        double[] gram = gram(fixed, fixed.length / rank);
+        pool.invoke(new SolveRange(target, fixed, interactions, gram, 0, interactions.length));
+    }
+
+    private double[] gram(float[] factors, int rows) {
+        double[] gram = new double[rank * rank];
+        for (int row = 0; row < rows; row++) {
+            int offset = row * rank;
+            for (int i = 0; i < rank; i++) {
+                for (int j = 0; j < rank; j++) {
+                    gram[i * rank + j] += factors[offset + i] * factors[offset + j];
+                }
+            }
+        }
+        return gram;
+    }
+
+    private void solveRow(float[] target, float[] fixed, int[] liked, double[] gram, int row) {
+        double[] a = gram.clone();
+        double[] b = new double[rank];
+        for (int i = 0; i < rank; i++) {
+            a[i * rank + i] += regularization;
+        }
+        for (int other : liked) {
+            int offset = other * rank;
+            for (int i = 0; i < rank; i++) {
+                double yi = fixed[offset + i];
+                b[i] += (1 + alpha) * yi;
+                for (int j = 0; j < rank; j++) {
+                    a[i * rank + j] += alpha * yi * fixed[offset + j];
+                }
+            }
+        }
+        double[] x = choleskySolve(a, b);
+        int offset = row * rank;
+        for (int i = 0; i < rank; i++) {
+            target[offset + i] = (float) x[i];
+        }
+    }
+
+    private double[] choleskySolve(double[] a, double[] b) {
+        double[] l = new double[rank * rank];
+        for (int i = 0; i < rank; i++) {
+            for (int j = 0; j <= i; j++) {
+                double sum = a[i * rank + j];
+                for (int k = 0; k < j; k++) {
+                    sum -= l[i * rank + k] * l[j * rank + k];
+                }
+                l[i * rank + j] = i == j ? Math.sqrt(sum) : sum / l[j * rank + j];
+            }
+        }
+        double[] y = new double[rank];
+        for (int i = 0; i < rank; i++) {
+            double sum = b[i];
+            for (int k = 0; k < i; k++) {
+                sum -= l[i * rank + k] * y[k];
+            }
+            y[i] = sum / l[i * rank + i];
+        }
+        double[] x = new double[rank];
+        for (int i = rank - 1; i >= 0; i--) {
+            double sum = y[i];
+            for (int k = i + 1; k < rank; k++) {
+                sum -= l[k * rank + i] * x[k];
+            }
+            x[i] = sum / l[i * rank + i];
+        }
+        return x;
+    }
+
+    private class SolveRange extends RecursiveAction {
+        private final float[] target;
+        private final float[] fixed;
+        private final int[][] interactions;
+        private final double[] gram;
+        private final int from;
+        private final int to;
+
+        private SolveRange(float[] target, float[] fixed, int[][] interactions, double[] gram, int from, int to) {
+            this.target = target;
+            this.fixed = fixed;
+            this.interactions = interactions;
+            this.gram = gram;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= PARALLEL_THRESHOLD) {
+                for (int row = from; row < to; row++) {
+                    solveRow(target, fixed, interactions[row], gram, row);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new SolveRange(target, fixed, interactions, gram, from, middle),
+                    new SolveRange(target, fixed, interactions, gram, middle, to));
+        }
+    }
+}
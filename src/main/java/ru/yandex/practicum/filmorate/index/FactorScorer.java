@@ -0,0 +1,5 @@
+package ru.yandex.practicum.filmorate.index;
+
+interface FactorScorer {
+    void scoreAll(float[] userFactors, int userOffset, float[] filmFactors, int rank, float[] scores);
+}
@@ -0,0 +1,27 @@
+package ru.yandex.practicum.filmorate.index;
+
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+final class FactorScorers {
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+    private static final String VECTOR_SCORER = "ru.yandex.practicum.filmorate.index.VectorFactorScorer";
+
+    private FactorScorers() {
+    }
+
+    static FactorScorer create() {
+        if (ModuleLayer.boot().findModule(VECTOR_MODULE).isPresent()) {
+            try {
+                FactorScorer scorer = (FactorScorer) Class.forName(VECTOR_SCORER).getDeclaredConstructor().newInstance();
+                log.info("Для оценки рекомендаций используется Vector API");
+                return scorer;
+            } catch (ReflectiveOperationException | LinkageError e) {
+                log.warn("Не удалось загрузить Vector API, используется скалярная оценка", e);
+            }
+        } else {
+            log.info("Модуль {} не подключён, используется скалярная оценка", VECTOR_MODULE);
+        }
+        return new ScalarFactorScorer();
+    }
+}
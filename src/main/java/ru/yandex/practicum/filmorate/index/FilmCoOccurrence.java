@@ -0,0 +1,330 @@
+package ru.yandex.practicum.filmorate.index;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.LikeSet;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+@Slf4j
+@Component
+public class FilmCoOccurrence implements LikeMatrixListener {
+    private final LikeMatrix likeMatrix;
+    private final long maxStalenessNanos;
+    private final int maxUserLikes;
+
+    private final Queue<Change> pending = new ConcurrentLinkedQueue<>();
+    private final List<LikeMatrixListener> appliedListeners = new CopyOnWriteArrayList<>();
+    private final Lock applyLock = new ReentrantLock();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private State state;
+    private List<Change> appliedDuringRecompute;
+
+    public FilmCoOccurrence(LikeMatrix likeMatrix,
+                            @Value("${filmorate.recommendations.max-staleness:PT1S}") Duration maxStaleness,
+                            @Value("${filmorate.recommendations.max-user-likes:1000}") int maxUserLikes) {
+        this.likeMatrix = likeMatrix;
+        this.maxStalenessNanos = maxStaleness.toNanos();
+        this.maxUserLikes = maxUserLikes;
+        this.state = new State(maxUserLikes);
+    }
+
+    @PostConstruct
+    void subscribe() {
+        likeMatrix.addListener(this);
+    }
+
+    @Override
+    public void likeAdded(long filmId, long userId, long[] userFilms) {
+        pending.add(new Change(ChangeType.LIKE_ADDED, filmId, userId, userFilms, System.nanoTime()));
+    }
+
+    @Override
+    public void likeRemoved(long filmId, long userId, long[] userFilms) {
+        pending.add(new Change(ChangeType.LIKE_REMOVED, filmId, userId, userFilms, System.nanoTime()));
+    }
+
+    @Override
+    public void userRemoved(long userId, long[] userFilms) {
+        pending.add(new Change(ChangeType.USER_REMOVED, 0, userId, userFilms, System.nanoTime()));
+    }
+
+    @Override
+    public void filmRemoved(long filmId, long[] filmUsers) {
+        pending.add(new Change(ChangeType.FILM_REMOVED, filmId, 0, filmUsers, System.nanoTime()));
+    }
+
+    public void addAppliedListener(LikeMatrixListener listener) {
+        appliedListeners.add(listener);
+    }
+
+    @Scheduled(fixedDelayString = "${filmorate.recommendations.apply-interval:PT0.2S}")
+    public void applyPending() {
+        applyLock.lock();
+        try {
+            drain();
+        } finally {
+            applyLock.unlock();
+        }
+    }
+
+    @Order(1)
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        recompute();
+    }
+
+    @Scheduled(initialDelayString = "${filmorate.recommendations.recompute-interval:PT1H}",
+            fixedDelayString = "${filmorate.recommendations.recompute-interval:PT1H}")
+    public long recompute() {
+        log.info("Полный пересчёт совместных лайков фильмов");
+        Map<Long, long[]> userFilms;
+        applyLock.lock();
+        try {
+            userFilms = likeMatrix.snapshotUserFilms(this::drain);
+            appliedDuringRecompute = new ArrayList<>();
+        } finally {
+            applyLock.unlock();
+        }
+        State recomputed = new State(maxUserLikes);
+        long drift = 0;
+        boolean completed = false;
+        try {
+            userFilms.values().forEach(films -> recomputed.addUser(films, 1));
+            completed = true;
+        } finally {
+            applyLock.lock();
+            try {
+                if (completed) {
+                    drain();
+                    appliedDuringRecompute.forEach(recomputed::apply);
+                    lock.writeLock().lock();
+                    try {
+                        drift = state.countDifferences(recomputed);
+                        state = recomputed;
+                    } finally {
+                        lock.writeLock().unlock();
+                    }
+                }
+            } finally {
+                appliedDuringRecompute = null;
+                applyLock.unlock();
+            }
+        }
+        if (drift == 0) {
+            log.info("Совместные лайки пересчитаны для {} фильмов, расхождений нет", recomputed.filmLikes.size());
+        } else {
+            log.warn("Инкрементальные совместные лайки расходились с полным пересчётом в {} значениях", drift);
+        }
+        return drift;
+    }
+
+    public List<Long> recommend(long[] likedFilms, int neighbours, int size) {
+        ensureFresh();
+        LikeSet liked = LikeSet.of(likedFilms);
+        Map<Long, Double> scores = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            for (long filmId : likedFilms) {
+                LongIntMap row = state.counts.get(filmId);
+                if (row == null) {
+                    continue;
+                }
+                int filmLikes = state.filmLikes.get(filmId);
+                PriorityQueue<Map.Entry<Long, Double>> best = new PriorityQueue<>(Map.Entry.comparingByValue());
+                row.forEach((otherId, together) -> {
+                    if (liked.contains(otherId)) {
+                        return;
+                    }
+                    int union = filmLikes + state.filmLikes.get(otherId) - together;
+                    best.offer(Map.entry(otherId, (double) together / union));
+                    if (best.size() > neighbours) {
+                        best.poll();
+                    }
+                });
+                best.forEach(entry -> scores.merge(entry.getKey(), entry.getValue(), Double::sum));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return scores.entrySet().stream()
+                .sorted(Map.Entry.<Long, Double>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .limit(size)
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+
+    private void ensureFresh() {
+        Change oldest = pending.peek();
+        if (oldest == null || System.nanoTime() - oldest.createdAt() < maxStalenessNanos) {
+            return;
+        }
+        try {
+            if (!applyLock.tryLock(maxStalenessNanos, TimeUnit.NANOSECONDS)) {
+                log.debug("Не дождались применения изменений совместных лайков, используется текущее состояние");
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        try {
+            drain();
+        } finally {
+            applyLock.unlock();
+        }
+    }
+
+    private void drain() {
+        Change change;
+        while ((change = pending.poll()) != null) {
+            lock.writeLock().lock();
+            try {
+                state.apply(change);
+            } finally {
+                lock.writeLock().unlock();
+            }
+            if (appliedDuringRecompute != null) {
+                appliedDuringRecompute.add(change);
+            }
+            notifyApplied(change);
+        }
+    }
+
+    private void notifyApplied(Change change) {
+        for (LikeMatrixListener listener : appliedListeners) {
+            switch (change.type()) {
+                case LIKE_ADDED -> listener.likeAdded(change.filmId(), change.userId(), change.ids());
+                case LIKE_REMOVED -> listener.likeRemoved(change.filmId(), change.userId(), change.ids());
+                case USER_REMOVED -> listener.userRemoved(change.userId(), change.ids());
+                case FILM_REMOVED -> listener.filmRemoved(change.filmId(), change.ids());
+            }
+        }
+    }
+
+    private enum ChangeType {
+        LIKE_ADDED,
+        LIKE_REMOVED,
+        USER_REMOVED,
+        FILM_REMOVED
+    }
+
+    private record Change(ChangeType type, long filmId, long userId, long[] ids, long createdAt) {
+    }
+
+    private static class State {
+        private final int maxUserLikes;
+        private final Map<Long, LongIntMap> counts = new HashMap<>();
+        private final LongIntMap filmLikes = new LongIntMap();
+
+        private State(int maxUserLikes) {
+            this.maxUserLikes = maxUserLikes;
+        }
+
+        private void apply(Change change) {
+            long[] films = change.ids();
+            switch (change.type()) {
+                case LIKE_ADDED -> {
+                    if (films.length <= maxUserLikes) {
+                        addLike(change.filmId(), films, 1);
+                    } else if (films.length == maxUserLikes + 1) {
+                        addUser(without(films, change.filmId()), -1);
+                    }
+                }
+                case LIKE_REMOVED -> {
+                    if (films.length < maxUserLikes) {
+                        addLike(change.filmId(), films, -1);
+                    } else if (films.length == maxUserLikes) {
+                        addUser(films, 1);
+                    }
+                }
+                case USER_REMOVED -> addUser(films, -1);
+                case FILM_REMOVED -> removeFilm(change.filmId());
+            }
+        }
+
+        private void addLike(long filmId, long[] otherFilms, int delta) {
+            filmLikes.add(filmId, delta);
+            for (long otherId : otherFilms) {
+                if (otherId != filmId) {
+                    row(filmId).add(otherId, delta);
+                    row(otherId).add(filmId, delta);
+                    dropIfEmpty(otherId);
+                }
+            }
+            dropIfEmpty(filmId);
+        }
+
+        private void addUser(long[] films, int delta) {
+            if (films.length > maxUserLikes) {
+                return;
+            }
+            for (int i = 0; i < films.length; i++) {
+                filmLikes.add(films[i], delta);
+                LongIntMap row = row(films[i]);
+                for (int j = 0; j < films.length; j++) {
+                    if (i != j) {
+                        row.add(films[j], delta);
+                    }
+                }
+                dropIfEmpty(films[i]);
+            }
+        }
+
+        private void removeFilm(long filmId) {
+            filmLikes.remove(filmId);
+            LongIntMap row = counts.remove(filmId);
+            if (row != null) {
+                row.forEach((otherId, together) -> {
+                    LongIntMap otherRow = counts.get(otherId);
+                    if (otherRow != null) {
+                        otherRow.remove(filmId);
+                        dropIfEmpty(otherId);
+                    }
+                });
+            }
+        }
+
+        private LongIntMap row(long filmId) {
+            return counts.computeIfAbsent(filmId, id -> new LongIntMap());
+        }
+
+        private void dropIfEmpty(long filmId) {
+            LongIntMap row = counts.get(filmId);
+            if (row != null && row.isEmpty()) {
+                counts.remove(filmId);
+            }
+        }
+
+        private long countDifferences(State other) {
+            long differences = filmLikes.countDifferences(other.filmLikes);
+            Set<Long> filmIds = new HashSet<>(counts.keySet());
+            filmIds.addAll(other.counts.keySet());
+            LongIntMap empty = new LongIntMap();
+            for (Long filmId : filmIds) {
+                differences += counts.getOrDefault(filmId, empty)
+                        .countDifferences(other.counts.getOrDefault(filmId, empty));
+            }
+            return differences;
+        }
+
+        private static long[] without(long[] films, long filmId) {
+            return Arrays.stream(films).filter(id -> id != filmId).toArray();
+        }
+    }
+}
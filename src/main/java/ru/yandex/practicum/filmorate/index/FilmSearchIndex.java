@@ -0,0 +1,325 @@
+package ru.yandex.practicum.filmorate.index;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.dal.DirectorRepository;
+import ru.yandex.practicum.filmorate.dal.FilmDbStorage;
+import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Suggestion;
+import ru.yandex.practicum.filmorate.model.enums.SearchType;
+import ru.yandex.practicum.filmorate.model.enums.SuggestionType;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+@Slf4j
+@Component
+public class FilmSearchIndex {
+    public static final int MAX_SUGGESTIONS = PrefixTrie.TOP_SIZE;
+
+    private final FilmDbStorage filmStorage;
+    private final DirectorRepository directorRepository;
+    private final PopularityLeaderboard popularityLeaderboard;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Snapshot snapshot = new Snapshot();
+    private List<Consumer<Snapshot>> pendingDuringRebuild;
+
+    public FilmSearchIndex(FilmDbStorage filmStorage,
+                           DirectorRepository directorRepository,
+                           PopularityLeaderboard popularityLeaderboard) {
+        this.filmStorage = filmStorage;
+        this.directorRepository = directorRepository;
+        this.popularityLeaderboard = popularityLeaderboard;
+        popularityLeaderboard.addLikesListener(this::likesChanged);
+    }
+
+    @Order(1)
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${filmorate.search.rebuild-interval}",
+            initialDelayString = "${filmorate.search.rebuild-interval}")
+    public void rebuild() {
+        log.info("Перестроение поискового индекса фильмов");
+        lock.writeLock().lock();
+        try {
+            pendingDuringRebuild = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Snapshot rebuilt = new Snapshot();
+        try {
+            filmStorage.getFilmTitles().forEach((filmId, title) ->
+                    rebuilt.putFilm(filmId, title, popularityLeaderboard.getLikes(filmId)));
+            filmStorage.getFilmDirectorIds().forEach(rebuilt::linkDirectors);
+            directorRepository.findAll().forEach(director -> rebuilt.putDirector(director.getId(), director.getName(),
+                    popularityLeaderboard.getDirectorLikes(director.getId())));
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                pendingDuringRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+
+        int replayed;
+        lock.writeLock().lock();
+        try {
+            pendingDuringRebuild.forEach(mutation -> mutation.accept(rebuilt));
+            replayed = pendingDuringRebuild.size();
+            pendingDuringRebuild = null;
+            snapshot = rebuilt;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Поисковый индекс построен для {} фильмов, повторно применено изменений: {}",
+                rebuilt.titles.size(), replayed);
+    }
+
+    public List<Long> search(String query, SearchType searchType) {
+        String normalized = SearchText.normalize(query);
+        Set<Long> filmIds;
+        lock.readLock().lock();
+        try {
+            filmIds = switch (searchType) {
+                case TITLE -> snapshot.titles.find(normalized);
+                case DIRECTOR -> snapshot.findByDirectorName(normalized);
+                case BOTH -> {
+                    Set<Long> both = new HashSet<>(snapshot.titles.find(normalized));
+                    both.addAll(snapshot.findByDirectorName(normalized));
+                    yield both;
+                }
+            };
+        } finally {
+            lock.readLock().unlock();
+        }
+        return popularityLeaderboard.sortByPopularity(filmIds);
+    }
+
+    public List<Long> searchFuzzy(String query, SearchType searchType) {
+        String normalized = SearchText.normalize(query);
+        Map<Long, Integer> distances;
+        lock.readLock().lock();
+        try {
+            distances = switch (searchType) {
+                case TITLE -> snapshot.fuzzyTitles.find(normalized);
+                case DIRECTOR -> snapshot.findFuzzyByDirectorName(normalized);
+                case BOTH -> {
+                    Map<Long, Integer> both = new HashMap<>(snapshot.fuzzyTitles.find(normalized));
+                    snapshot.findFuzzyByDirectorName(normalized).forEach((filmId, distance) ->
+                            both.merge(filmId, distance, Math::min));
+                    yield both;
+                }
+            };
+        } finally {
+            lock.readLock().unlock();
+        }
+        Map<Integer, List<Long>> byDistance = new TreeMap<>();
+        distances.forEach((filmId, distance) ->
+                byDistance.computeIfAbsent(distance, key -> new ArrayList<>()).add(filmId));
+        List<Long> result = new ArrayList<>(distances.size());
+        byDistance.values().forEach(filmIds -> result.addAll(popularityLeaderboard.sortByPopularity(filmIds)));
+        return result;
+    }
+
+    public List<Suggestion> suggest(String prefix, int count) {
+        List<PrefixTrie.Entry> candidates;
+        lock.readLock().lock();
+        try {
+            candidates = snapshot.suggestions.top(SearchText.normalize(prefix));
+        } finally {
+            lock.readLock().unlock();
+        }
+        return candidates.stream()
+                .map(entry -> new PrefixTrie.Entry(entry.type(), entry.id(), entry.name(), currentWeight(entry)))
+                .sorted(Comparator.comparingLong(PrefixTrie.Entry::weight).reversed()
+                        .thenComparing(PrefixTrie.Entry::type)
+                        .thenComparingLong(PrefixTrie.Entry::id))
+                .limit(count)
+                .map(entry -> new Suggestion(entry.type(), entry.id(), entry.name()))
+                .collect(Collectors.toList());
+    }
+
+    public void upsertFilm(Film film) {
+        long filmId = film.getId();
+        String title = film.getName();
+        Set<Long> directorIds = film.getDirectors() == null ? new HashSet<>() : film.getDirectors().stream()
+                .map(Director::getId)
+                .collect(Collectors.toSet());
+        long weight = popularityLeaderboard.getLikes(filmId);
+        mutate(index -> {
+            index.putFilm(filmId, title, weight);
+            index.unlinkFilm(filmId);
+            index.linkDirectors(filmId, directorIds);
+        });
+    }
+
+    public void removeFilm(Long filmId) {
+        mutate(index -> {
+            index.removeFilm(filmId);
+            index.unlinkFilm(filmId);
+        });
+    }
+
+    public void upsertDirector(Director director) {
+        long directorId = director.getId();
+        String name = director.getName();
+        long weight = popularityLeaderboard.getDirectorLikes(directorId);
+        mutate(index -> index.putDirector(directorId, name, weight));
+    }
+
+    public void removeDirector(Long directorId) {
+        mutate(index -> {
+            index.removeDirector(directorId);
+            Set<Long> filmIds = index.directorFilms.remove(directorId);
+            if (filmIds != null) {
+                filmIds.forEach(filmId -> index.filmDirectors.getOrDefault(filmId, new HashSet<>()).remove(directorId));
+            }
+        });
+    }
+
+    private void likesChanged(Set<Long> filmIds) {
+        Set<Long> directorIds = new HashSet<>();
+        lock.readLock().lock();
+        try {
+            filmIds.forEach(filmId ->
+                    directorIds.addAll(snapshot.filmDirectors.getOrDefault(filmId, Collections.emptySet())));
+        } finally {
+            lock.readLock().unlock();
+        }
+        Map<Long, Long> filmWeights = new HashMap<>();
+        filmIds.forEach(filmId -> filmWeights.put(filmId, (long) popularityLeaderboard.getLikes(filmId)));
+        Map<Long, Long> directorWeights = new HashMap<>();
+        directorIds.forEach(directorId ->
+                directorWeights.put(directorId, popularityLeaderboard.getDirectorLikes(directorId)));
+        mutate(index -> {
+            filmWeights.forEach(index::reweightFilm);
+            directorWeights.forEach(index::reweightDirector);
+        });
+    }
+
+    private long currentWeight(PrefixTrie.Entry entry) {
+        return switch (entry.type()) {
+            case FILM -> popularityLeaderboard.getLikes(entry.id());
+            case DIRECTOR -> popularityLeaderboard.getDirectorLikes(entry.id());
+        };
+    }
+
+    private void mutate(Consumer<Snapshot> mutation) {
+        lock.writeLock().lock();
+        try {
+            mutation.accept(snapshot);
+            if (pendingDuringRebuild != null) {
+                pendingDuringRebuild.add(mutation);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static class Snapshot {
+        private final TrigramIndex titles = new TrigramIndex();
+        private final TrigramIndex directors = new TrigramIndex();
+        private final Map<Long, Set<Long>> filmDirectors = new HashMap<>();
+        private final Map<Long, Set<Long>> directorFilms = new HashMap<>();
+        private final Map<Long, String> filmTitles = new HashMap<>();
+        private final Map<Long, String> directorNames = new HashMap<>();
+        private final PrefixTrie suggestions = new PrefixTrie();
+        private final FuzzyIndex fuzzyTitles = new FuzzyIndex();
+        private final FuzzyIndex fuzzyDirectors = new FuzzyIndex();
+
+        private Map<Long, Integer> findFuzzyByDirectorName(String normalizedQuery) {
+            Map<Long, Integer> filmDistances = new HashMap<>();
+            fuzzyDirectors.find(normalizedQuery).forEach((directorId, distance) ->
+                    directorFilms.getOrDefault(directorId, Collections.emptySet()).forEach(filmId ->
+                            filmDistances.merge(filmId, distance, Math::min)));
+            return filmDistances;
+        }
+
+        private void putFilm(Long filmId, String title, long weight) {
+            removeFilm(filmId);
+            titles.put(filmId, title);
+            fuzzyTitles.put(filmId, title);
+            filmTitles.put(filmId, title);
+            suggestions.put(SearchText.normalize(title), new PrefixTrie.Entry(SuggestionType.FILM, filmId, title, weight));
+        }
+
+        private void reweightFilm(Long filmId, long weight) {
+            String title = filmTitles.get(filmId);
+            if (title != null) {
+                suggestions.update(SearchText.normalize(title),
+                        new PrefixTrie.Entry(SuggestionType.FILM, filmId, title, weight));
+            }
+        }
+
+        private void removeFilm(Long filmId) {
+            titles.remove(filmId);
+            fuzzyTitles.remove(filmId);
+            String title = filmTitles.remove(filmId);
+            if (title != null) {
+                suggestions.remove(SearchText.normalize(title), SuggestionType.FILM, filmId);
+            }
+        }
+
+        private void putDirector(Long directorId, String name, long weight) {
+            removeDirector(directorId);
+            directors.put(directorId, name);
+            fuzzyDirectors.put(directorId, name);
+            directorNames.put(directorId, name);
+            suggestions.put(SearchText.normalize(name), new PrefixTrie.Entry(SuggestionType.DIRECTOR, directorId, name, weight));
+        }
+
+        private void reweightDirector(Long directorId, long weight) {
+            String name = directorNames.get(directorId);
+            if (name != null) {
+                suggestions.update(SearchText.normalize(name),
+                        new PrefixTrie.Entry(SuggestionType.DIRECTOR, directorId, name, weight));
+            }
+        }
+
+        private void removeDirector(Long directorId) {
+            directors.remove(directorId);
+            fuzzyDirectors.remove(directorId);
+            String name = directorNames.remove(directorId);
+            if (name != null) {
+                suggestions.remove(SearchText.normalize(name), SuggestionType.DIRECTOR, directorId);
+            }
+        }
+
+        private Set<Long> findByDirectorName(String normalizedQuery) {
+            Set<Long> filmIds = new HashSet<>();
+            directors.find(normalizedQuery).forEach(directorId ->
+                    filmIds.addAll(directorFilms.getOrDefault(directorId, Collections.emptySet())));
+            return filmIds;
+        }
+
+        private void linkDirectors(Long filmId, Set<Long> directorIds) {
+            filmDirectors.computeIfAbsent(filmId, id -> new HashSet<>()).addAll(directorIds);
+            directorIds.forEach(directorId ->
+                    directorFilms.computeIfAbsent(directorId, id -> new HashSet<>()).add(filmId));
+        }
+
+        private void unlinkFilm(Long filmId) {
+            Set<Long> directorIds = filmDirectors.remove(filmId);
+            if (directorIds == null) {
+                return;
+            }
+            directorIds.forEach(directorId -> {
+                Set<Long> filmIds = directorFilms.get(directorId);
+                if (filmIds != null && filmIds.remove(filmId) && filmIds.isEmpty()) {
+                    directorFilms.remove(directorId);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,4 @@
+package ru.yandex.practicum.filmorate.index;
+
+public record FriendCandidate(long userId, int mutualFriends) {
+}
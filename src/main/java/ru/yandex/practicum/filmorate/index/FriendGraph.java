@@ -0,0 +1,506 @@
+package ru.yandex.practicum.filmorate.index;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.dal.UserDbStorage;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongConsumer;
+
+@Slf4j
+@Component
+public class FriendGraph {
+    public static final int MAX_SUGGESTIONS = 100;
+    private static final long[] EMPTY = new long[0];
+    private static final int MIN_COMPACT_THRESHOLD = 1024;
+    private static final Comparator<FriendCandidate> BY_MUTUAL_FRIENDS = Comparator
+            .comparingInt(FriendCandidate::mutualFriends)
+            .thenComparing(FriendCandidate::userId, Comparator.reverseOrder());
+
+    private final UserDbStorage userStorage;
+    private final int maxFanout;
+    private final int maxWork;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Adjacency base = Adjacency.EMPTY;
+    private final Map<Long, long[]> delta = new HashMap<>();
+    private final Set<Long> deletedUsers = new HashSet<>();
+    private List<Runnable> pendingDuringRebuild = new ArrayList<>();
+    private List<Runnable> pendingDuringCompaction;
+    private boolean loaded;
+
+    public FriendGraph(UserDbStorage userStorage,
+                       @Value("${filmorate.friends.suggestions.max-fanout:1000}") int maxFanout,
+                       @Value("${filmorate.friends.suggestions.max-work:100000}") int maxWork) {
+        this.userStorage = userStorage;
+        this.maxFanout = maxFanout;
+        this.maxWork = maxWork;
+    }
+
+    @Order(0)
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        log.info("Перестроение графа друзей");
+        lock.writeLock().lock();
+        try {
+            if (pendingDuringRebuild == null) {
+                pendingDuringRebuild = new ArrayList<>();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        Adjacency rebuilt;
+        try {
+            Adjacency.Builder builder = new Adjacency.Builder();
+            userStorage.forEachFriendship(builder::add);
+            rebuilt = builder.build();
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                if (loaded) {
+                    pendingDuringRebuild = null;
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+        int replayed;
+        lock.writeLock().lock();
+        try {
+            base = rebuilt;
+            delta.clear();
+            deletedUsers.clear();
+            List<Runnable> changes = pendingDuringRebuild;
+            pendingDuringRebuild = null;
+            changes.forEach(Runnable::run);
+            replayed = changes.size();
+            loaded = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Граф друзей построен: {} пользователей, {} связей, повторно применено изменений: {}",
+                rebuilt.userCount(), rebuilt.edgeCount(), replayed);
+    }
+
+    public void addFriend(long userId, long friendId) {
+        mutate(() -> link(userId, friendId));
+    }
+
+    public void removeFriend(long userId, long friendId) {
+        mutate(() -> unlink(userId, friendId));
+    }
+
+    public void removeUser(long userId) {
+        mutate(() -> {
+            delta.put(userId, EMPTY);
+            deletedUsers.add(userId);
+        });
+    }
+
+    public long[] getFriendIds(long userId) {
+        lock.readLock().lock();
+        try {
+            return withoutDeleted(row(userId));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long[] getCommonFriendIds(long userId, long otherId) {
+        lock.readLock().lock();
+        try {
+            return withoutDeleted(intersect(row(userId), row(otherId)));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Map<Long, User.FriendshipStatus> getFriendships(long userId) {
+        lock.readLock().lock();
+        try {
+            Map<Long, User.FriendshipStatus> friendships = new HashMap<>();
+            for (long friendId : withoutDeleted(row(userId))) {
+                friendships.put(friendId, status(userId, friendId));
+            }
+            return friendships;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Optional<User.FriendshipStatus> getFriendshipStatus(long userId, long friendId) {
+        lock.readLock().lock();
+        try {
+            if (deletedUsers.contains(friendId) || !contains(userId, friendId)) {
+                return Optional.empty();
+            }
+            return Optional.of(status(userId, friendId));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<FriendCandidate> suggestFriends(long userId, int count) {
+        Map<Long, Integer> mutualFriends = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            long[] friends = withoutDeleted(row(userId));
+            Long[] byDegree = Arrays.stream(friends).boxed().toArray(Long[]::new);
+            Arrays.sort(byDegree, Comparator.comparingInt(this::degree));
+            int work = 0;
+            for (Long friendId : byDegree) {
+                if (work >= maxWork) {
+                    log.debug("Бюджет обхода исчерпан для пользователя {} после {} связей", userId, work);
+                    break;
+                }
+                work += forEachFriend(friendId, Math.min(maxFanout, maxWork - work), candidateId -> {
+                    if (candidateId != userId
+                            && !deletedUsers.contains(candidateId)
+                            && Arrays.binarySearch(friends, candidateId) < 0) {
+                        mutualFriends.merge(candidateId, 1, Integer::sum);
+                    }
+                });
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        PriorityQueue<FriendCandidate> best = new PriorityQueue<>(BY_MUTUAL_FRIENDS);
+        mutualFriends.forEach((candidateId, mutual) -> {
+            best.offer(new FriendCandidate(candidateId, mutual));
+            if (best.size() > count) {
+                best.poll();
+            }
+        });
+        List<FriendCandidate> result = new ArrayList<>(best);
+        result.sort(BY_MUTUAL_FRIENDS.reversed());
+        return result;
+    }
+
+    private void mutate(Runnable change) {
+        boolean compact;
+        lock.writeLock().lock();
+        try {
+            change.run();
+            if (pendingDuringRebuild != null) {
+                pendingDuringRebuild.add(change);
+            }
+            if (pendingDuringCompaction != null) {
+                pendingDuringCompaction.add(change);
+            }
+            compact = needsCompaction();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (compact) {
+            compact();
+        }
+    }
+
+    private void link(long userId, long friendId) {
+        long[] friends = row(userId);
+        int index = Arrays.binarySearch(friends, friendId);
+        if (index < 0) {
+            int insertAt = -index - 1;
+            long[] updated = new long[friends.length + 1];
+            System.arraycopy(friends, 0, updated, 0, insertAt);
+            updated[insertAt] = friendId;
+            System.arraycopy(friends, insertAt, updated, insertAt + 1, friends.length - insertAt);
+            delta.put(userId, updated);
+        }
+    }
+
+    private void unlink(long userId, long friendId) {
+        long[] friends = row(userId);
+        int index = Arrays.binarySearch(friends, friendId);
+        if (index >= 0) {
+            long[] updated = new long[friends.length - 1];
+            System.arraycopy(friends, 0, updated, 0, index);
+            System.arraycopy(friends, index + 1, updated, index, friends.length - index - 1);
+            delta.put(userId, updated);
+        }
+    }
+
+    private int degree(long userId) {
+        long[] changed = delta.get(userId);
+        return changed != null ? changed.length : base.degree(userId);
+    }
+
+    private int forEachFriend(long userId, int limit, LongConsumer consumer) {
+        long[] changed = delta.get(userId);
+        if (changed == null) {
+            return base.forEachFriend(userId, limit, consumer);
+        }
+        int visited = Math.min(limit, changed.length);
+        for (int i = 0; i < visited; i++) {
+            consumer.accept(changed[i]);
+        }
+        return visited;
+    }
+
+    private User.FriendshipStatus status(long userId, long friendId) {
+        return contains(friendId, userId)
+                ? User.FriendshipStatus.CONFIRMED
+                : User.FriendshipStatus.UNCONFIRMED;
+    }
+
+    private long[] row(long userId) {
+        long[] changed = delta.get(userId);
+        return changed != null ? changed : base.row(userId);
+    }
+
+    private boolean contains(long userId, long friendId) {
+        long[] changed = delta.get(userId);
+        return changed != null ? Arrays.binarySearch(changed, friendId) >= 0 : base.contains(userId, friendId);
+    }
+
+    private long[] withoutDeleted(long[] ids) {
+        if (deletedUsers.isEmpty()) {
+            return ids;
+        }
+        return Arrays.stream(ids).filter(id -> !deletedUsers.contains(id)).toArray();
+    }
+
+    private boolean needsCompaction() {
+        return pendingDuringCompaction == null
+                && delta.size() + deletedUsers.size() >= Math.max(MIN_COMPACT_THRESHOLD, base.userCount() / 8);
+    }
+
+    private void compact() {
+        Adjacency snapshot;
+        Map<Long, long[]> changedRows;
+        Set<Long> deleted;
+        lock.writeLock().lock();
+        try {
+            if (!needsCompaction()) {
+                return;
+            }
+            snapshot = base;
+            changedRows = new HashMap<>(delta);
+            deleted = new HashSet<>(deletedUsers);
+            pendingDuringCompaction = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        Adjacency compacted = null;
+        boolean swapped = false;
+        try {
+            compacted = merge(snapshot, changedRows, deleted);
+        } finally {
+            lock.writeLock().lock();
+            try {
+                List<Runnable> changes = pendingDuringCompaction;
+                pendingDuringCompaction = null;
+                if (compacted != null && base == snapshot) {
+                    base = compacted;
+                    delta.clear();
+                    deletedUsers.clear();
+                    changes.forEach(Runnable::run);
+                    swapped = true;
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        if (!swapped) {
+            log.debug("Уплотнение графа друзей отменено: граф был перестроен");
+            return;
+        }
+        log.debug("Граф друзей уплотнён: {} пользователей, {} связей", compacted.userCount(), compacted.edgeCount());
+    }
+
+    private static Adjacency merge(Adjacency base, Map<Long, long[]> delta, Set<Long> deletedUsers) {
+        Adjacency.Builder builder = new Adjacency.Builder();
+        long[] baseIds = base.userIds;
+        long[] changedIds = delta.keySet().stream().mapToLong(Long::longValue).sorted().toArray();
+        int i = 0;
+        int j = 0;
+        while (i < baseIds.length || j < changedIds.length) {
+            long userId;
+            if (j == changedIds.length || i < baseIds.length && baseIds[i] < changedIds[j]) {
+                userId = baseIds[i++];
+            } else {
+                userId = changedIds[j++];
+                if (i < baseIds.length && baseIds[i] == userId) {
+                    i++;
+                }
+            }
+            if (deletedUsers.contains(userId)) {
+                continue;
+            }
+            LongConsumer add = friendId -> {
+                if (!deletedUsers.contains(friendId)) {
+                    builder.add(userId, friendId);
+                }
+            };
+            long[] changed = delta.get(userId);
+            if (changed != null) {
+                Arrays.stream(changed).forEach(add);
+            } else {
+                base.forEachFriend(userId, base.degree(userId), add);
+            }
+        }
+        return builder.build();
+    }
+
+    static long[] intersect(long[] left, long[] right) {
+        long[] result = new long[Math.min(left.length, right.length)];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        while (i < left.length && j < right.length) {
+            if (left[i] < right[j]) {
+                i++;
+            } else if (left[i] > right[j]) {
+                j++;
+            } else {
+                result[size++] = left[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    private static final class Adjacency {
+        private static final Adjacency EMPTY = new Adjacency(new long[0], new int[]{0}, new long[0]);
+
+        private final long[] userIds;
+        private final int[] offsets;
+        private final long[] friendIds;
+
+        private Adjacency(long[] userIds, int[] offsets, long[] friendIds) {
+            this.userIds = userIds;
+            this.offsets = offsets;
+            this.friendIds = friendIds;
+        }
+
+        private long[] row(long userId) {
+            int index = Arrays.binarySearch(userIds, userId);
+            if (index < 0) {
+                return FriendGraph.EMPTY;
+            }
+            return Arrays.copyOfRange(friendIds, offsets[index], offsets[index + 1]);
+        }
+
+        private int degree(long userId) {
+            int index = Arrays.binarySearch(userIds, userId);
+            return index < 0 ? 0 : offsets[index + 1] - offsets[index];
+        }
+
+        private int forEachFriend(long userId, int limit, LongConsumer consumer) {
+            int index = Arrays.binarySearch(userIds, userId);
+            if (index < 0) {
+                return 0;
+            }
+            int end = Math.min(offsets[index + 1], offsets[index] + limit);
+            for (int i = offsets[index]; i < end; i++) {
+                consumer.accept(friendIds[i]);
+            }
+            return end - offsets[index];
+        }
+
+        private boolean contains(long userId, long friendId) {
+            int index = Arrays.binarySearch(userIds, userId);
+            return index >= 0 && Arrays.binarySearch(friendIds, offsets[index], offsets[index + 1], friendId) >= 0;
+        }
+
+        private void forEachUser(LongConsumer consumer) {
+            for (long userId : userIds) {
+                consumer.accept(userId);
+            }
+        }
+
+        private int userCount() {
+            return userIds.length;
+        }
+
+        private int edgeCount() {
+            return friendIds.length;
+        }
+
+        private static final class Builder {
+            private long[] users = new long[16];
+            private long[] friends = new long[16];
+            private int size;
+
+            private void add(long userId, long friendId) {
+                if (size == users.length) {
+                    users = Arrays.copyOf(users, size * 2);
+                    friends = Arrays.copyOf(friends, size * 2);
+                }
+                users[size] = userId;
+                friends[size] = friendId;
+                size++;
+            }
+
+            private Adjacency build() {
+                if (!isSorted()) {
+                    sort();
+                }
+                long[] userIds = new long[size];
+                int[] offsets = new int[size + 1];
+                int userCount = 0;
+                for (int i = 0; i < size; i++) {
+                    if (userCount == 0 || userIds[userCount - 1] != users[i]) {
+                        offsets[userCount] = i;
+                        userIds[userCount++] = users[i];
+                    }
+                }
+                offsets[userCount] = size;
+                return new Adjacency(Arrays.copyOf(userIds, userCount), Arrays.copyOf(offsets, userCount + 1),
+                        Arrays.copyOf(friends, size));
+            }
+
+            private boolean isSorted() {
+                for (int i = 1; i < size; i++) {
+                    int byUser = Long.compare(users[i - 1], users[i]);
+                    if (byUser > 0 || byUser == 0 && friends[i - 1] > friends[i]) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+
+            private void sort() {
+                long[] userIds = Arrays.copyOf(users, size);
+                Arrays.sort(userIds);
+                int userCount = 0;
+                for (int i = 0; i < size; i++) {
+                    if (userCount == 0 || userIds[userCount - 1] != userIds[i]) {
+                        userIds[userCount++] = userIds[i];
+                    }
+                }
+                int[] userIndex = new int[size];
+                int[] offsets = new int[userCount + 1];
+                for (int i = 0; i < size; i++) {
+                    userIndex[i] = Arrays.binarySearch(userIds, 0, userCount, users[i]);
+                    offsets[userIndex[i] + 1]++;
+                }
+                for (int u = 0; u < userCount; u++) {
+                    offsets[u + 1] += offsets[u];
+                }
+                int[] next = Arrays.copyOf(offsets, userCount);
+                long[] sortedUsers = new long[size];
+                long[] sortedFriends = new long[size];
+                for (int i = 0; i < size; i++) {
+                    int position = next[userIndex[i]]++;
+                    sortedUsers[position] = users[i];
+                    sortedFriends[position] = friends[i];
+                }
+                for (int u = 0; u < userCount; u++) {
+                    Arrays.sort(sortedFriends, offsets[u], offsets[u + 1]);
+                }
+                users = sortedUsers;
+                friends = sortedFriends;
+            }
+        }
+    }
+}
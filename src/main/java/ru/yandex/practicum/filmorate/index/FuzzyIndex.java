@@ -0,0 +1,159 @@
+package ru.yandex.practicum.filmorate.index;
+
+import java.util.*;
+
+class FuzzyIndex {
+    static final int MAX_DISTANCE = 2;
+    private static final int SHORT_TERM_LENGTH = 4;
+
+    private final Map<String, Set<Long>> termDocs = new HashMap<>();
+    private final Map<Long, String[]> docTerms = new HashMap<>();
+    private final Map<String, Set<String>> deletes = new HashMap<>();
+
+    void put(long id, String text) {
+        remove(id);
+        String[] terms = tokenize(SearchText.normalize(text));
+        docTerms.put(id, terms);
+        for (String term : terms) {
+            Set<Long> docs = termDocs.get(term);
+            if (docs == null) {
+                docs = new HashSet<>();
+                termDocs.put(term, docs);
+                for (String variant : deletes(term)) {
+                    deletes.computeIfAbsent(variant, key -> new HashSet<>()).add(term);
+                }
+            }
+            docs.add(id);
+        }
+    }
+
+    void remove(long id) {
+        String[] terms = docTerms.remove(id);
+        if (terms == null) {
+            return;
+        }
+        for (String term : terms) {
+            Set<Long> docs = termDocs.get(term);
+            if (docs == null || !docs.remove(id) || !docs.isEmpty()) {
+                continue;
+            }
+            termDocs.remove(term);
+            for (String variant : deletes(term)) {
+                Set<String> variantTerms = deletes.get(variant);
+                if (variantTerms != null && variantTerms.remove(term) && variantTerms.isEmpty()) {
+                    deletes.remove(variant);
+                }
+            }
+        }
+    }
+
+    Map<Long, Integer> find(String normalizedQuery) {
+        String[] queryTerms = tokenize(normalizedQuery);
+        if (queryTerms.length == 0) {
+            return Collections.emptyMap();
+        }
+        Map<Long, Integer> result = null;
+        for (String queryTerm : queryTerms) {
+            Map<Long, Integer> termMatches = findTerm(queryTerm);
+            if (result == null) {
+                result = termMatches;
+            } else {
+                Map<Long, Integer> merged = new HashMap<>();
+                for (Map.Entry<Long, Integer> entry : result.entrySet()) {
+                    Integer distance = termMatches.get(entry.getKey());
+                    if (distance != null) {
+                        merged.put(entry.getKey(), entry.getValue() + distance);
+                    }
+                }
+                result = merged;
+            }
+            if (result.isEmpty()) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    private Map<Long, Integer> findTerm(String queryTerm) {
+        int maxDistance = maxDistance(queryTerm);
+        Set<String> candidates = new HashSet<>();
+        for (String variant : deletes(queryTerm, maxDistance)) {
+            candidates.addAll(deletes.getOrDefault(variant, Collections.emptySet()));
+        }
+        Map<Long, Integer> matches = new HashMap<>();
+        for (String candidate : candidates) {
+            int distance = distance(queryTerm, candidate, maxDistance);
+            if (distance > maxDistance) {
+                continue;
+            }
+            for (Long docId : termDocs.get(candidate)) {
+                matches.merge(docId, distance, Math::min);
+            }
+        }
+        return matches;
+    }
+
+    private static int maxDistance(String term) {
+        return term.length() <= SHORT_TERM_LENGTH ? 1 : MAX_DISTANCE;
+    }
+
+    private static Set<String> deletes(String term) {
+        return deletes(term, maxDistance(term));
+    }
+
+    private static Set<String> deletes(String term, int distance) {
+        Set<String> variants = new HashSet<>();
+        variants.add(term);
+        Set<String> frontier = Set.of(term);
+        for (int step = 0; step < distance; step++) {
+            Set<String> next = new HashSet<>();
+            for (String word : frontier) {
+                if (word.length() <= 1) {
+                    continue;
+                }
+                for (int i = 0; i < word.length(); i++) {
+                    String variant = word.substring(0, i) + word.substring(i + 1);
+                    if (variants.add(variant)) {
+                        next.add(variant);
+                    }
+                }
+            }
+            frontier = next;
+        }
+        return variants;
+    }
+
+    private static int distance(String a, String b, int maxDistance) {
+        if (Math.abs(a.length() - b.length()) > maxDistance) {
+            return maxDistance + 1;
+        }
+        int[] previousPrevious = new int[b.length() + 1];
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    current[j] = Math.min(current[j], previousPrevious[j - 2] + 1);
+                }
+            }
+            int[] recycled = previousPrevious;
+            previousPrevious = previous;
+            previous = current;
+            current = recycled;
+        }
+        return previous[b.length()];
+    }
+
+    private static String[] tokenize(String normalized) {
+        return Arrays.stream(normalized.split("[^\\p{L}\\p{N}]+"))
+                .filter(term -> !term.isEmpty())
+                .distinct()
+                .toArray(String[]::new);
+    }
+}
@@ -0,0 +1,102 @@
+package ru.yandex.practicum.filmorate.index;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+public class IdBitmap {
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private BitSet ids = new BitSet();
+    private List<Change> changesDuringRebuild;
+    private volatile boolean loaded;
+
+    public void rebuild(Consumer<LongConsumer> loader) {
+        lock.writeLock().lock();
+        try {
+            changesDuringRebuild = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        BitSet rebuilt = new BitSet();
+        boolean completed = false;
+        try {
+            loader.accept(id -> {
+                if (fits(id)) {
+                    rebuilt.set((int) id);
+                }
+            });
+            completed = true;
+        } finally {
+            lock.writeLock().lock();
+            try {
+                if (completed) {
+                    changesDuringRebuild.forEach(change -> rebuilt.set(change.id(), change.present()));
+                    ids = rebuilt;
+                    loaded = true;
+                }
+                changesDuringRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    public boolean covers(long id) {
+        return loaded && id <= Integer.MAX_VALUE;
+    }
+
+    public boolean contains(long id) {
+        if (!fits(id)) {
+            return false;
+        }
+        lock.readLock().lock();
+        try {
+            return ids.get((int) id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void add(long id) {
+        change(id, true);
+    }
+
+    public void remove(long id) {
+        change(id, false);
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return ids.cardinality();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void change(long id, boolean present) {
+        if (!fits(id)) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            ids.set((int) id, present);
+            if (changesDuringRebuild != null) {
+                changesDuringRebuild.add(new Change((int) id, present));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static boolean fits(long id) {
+        return id >= 0 && id <= Integer.MAX_VALUE;
+    }
+
+    private record Change(int id, boolean present) {
+    }
+}
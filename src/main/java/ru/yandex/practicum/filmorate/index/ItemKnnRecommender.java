@@ -0,0 +1,33 @@
+package ru.yandex.practicum.filmorate.index;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+@Component
+public class ItemKnnRecommender implements RecommendationStrategy {
+    public static final String NAME = "item-knn";
+
+    private final LikeMatrix likeMatrix;
+    private final FilmCoOccurrence coOccurrence;
+    private final int neighbours;
+
+    public ItemKnnRecommender(LikeMatrix likeMatrix,
+                              FilmCoOccurrence coOccurrence,
+                              @Value("${filmorate.recommendations.neighbours:20}") int neighbours) {
+        this.likeMatrix = likeMatrix;
+        this.coOccurrence = coOccurrence;
+        this.neighbours = neighbours;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public List<Long> recommend(Long userId, int size) {
+        return coOccurrence.recommend(likeMatrix.getUserFilms(userId), neighbours, size);
+    }
+}
@@ -0,0 +1,255 @@
+package ru.yandex.practicum.filmorate.index;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.dal.FilmDbStorage;
+import ru.yandex.practicum.filmorate.model.LikeSet;
+
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class LikeMatrix {
+    private static final LikeSet EMPTY = new LikeSet();
+
+    private final FilmDbStorage filmStorage;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, LikeSet> filmsByUser = new HashMap<>();
+    private final Map<Long, LikeSet> usersByFilm = new HashMap<>();
+    private final List<LikeMatrixListener> listeners = new CopyOnWriteArrayList<>();
+    private List<Runnable> pendingDuringRebuild = new ArrayList<>();
+    private volatile boolean loaded;
+
+    @Order(0)
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        log.info("Перестроение матрицы лайков");
+        lock.writeLock().lock();
+        try {
+            if (pendingDuringRebuild == null) {
+                pendingDuringRebuild = new ArrayList<>();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        Map<Long, LikeSet> loadedFilmsByUser = new HashMap<>();
+        Map<Long, LikeSet> loadedUsersByFilm = new HashMap<>();
+        try {
+            filmStorage.forEachLike((filmId, userId) -> {
+                loadedFilmsByUser.computeIfAbsent(userId, id -> new LikeSet()).add(filmId);
+                loadedUsersByFilm.computeIfAbsent(filmId, id -> new LikeSet()).add(userId);
+            });
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                if (loaded) {
+                    pendingDuringRebuild = null;
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+        loadedFilmsByUser.values().forEach(LikeSet::trimToSize);
+        loadedUsersByFilm.values().forEach(LikeSet::trimToSize);
+        int replayed;
+        lock.writeLock().lock();
+        try {
+            filmsByUser.clear();
+            filmsByUser.putAll(loadedFilmsByUser);
+            usersByFilm.clear();
+            usersByFilm.putAll(loadedUsersByFilm);
+            pendingDuringRebuild.forEach(Runnable::run);
+            replayed = pendingDuringRebuild.size();
+            pendingDuringRebuild = null;
+            loaded = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Матрица лайков построена: {} пользователей, {} фильмов, повторно применено изменений: {}",
+                loadedFilmsByUser.size(), loadedUsersByFilm.size(), replayed);
+    }
+
+    public void addLike(Long filmId, Long userId) {
+        lock.writeLock().lock();
+        try {
+            if (put(filmId, userId)) {
+                record(() -> put(filmId, userId));
+                long[] userFilms = filmsByUser.get(userId).toArray();
+                listeners.forEach(listener -> listener.likeAdded(filmId, userId, userFilms));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void addLikes(List<long[]> likes) {
+        lock.writeLock().lock();
+        try {
+            for (long[] like : likes) {
+                long filmId = like[0];
+                long userId = like[1];
+                if (put(filmId, userId)) {
+                    record(() -> put(filmId, userId));
+                    long[] userFilms = filmsByUser.get(userId).toArray();
+                    listeners.forEach(listener -> listener.likeAdded(filmId, userId, userFilms));
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeLike(Long filmId, Long userId) {
+        lock.writeLock().lock();
+        try {
+            if (delete(filmId, userId)) {
+                record(() -> delete(filmId, userId));
+                long[] userFilms = filmsByUser.getOrDefault(userId, EMPTY).toArray();
+                listeners.forEach(listener -> listener.likeRemoved(filmId, userId, userFilms));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeUser(Long userId) {
+        lock.writeLock().lock();
+        try {
+            record(() -> deleteUser(userId));
+            LikeSet films = deleteUser(userId);
+            if (films != null) {
+                long[] userFilms = films.toArray();
+                listeners.forEach(listener -> listener.userRemoved(userId, userFilms));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeFilm(Long filmId) {
+        lock.writeLock().lock();
+        try {
+            record(() -> deleteFilm(filmId));
+            LikeSet users = deleteFilm(filmId);
+            if (users != null) {
+                long[] filmUsers = users.toArray();
+                listeners.forEach(listener -> listener.filmRemoved(filmId, filmUsers));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean hasLike(Long filmId, Long userId) {
+        if (!loaded) {
+            return filmStorage.hasLike(filmId, userId);
+        }
+        lock.readLock().lock();
+        try {
+            return filmsByUser.getOrDefault(userId, EMPTY).contains(filmId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long[] getUserFilms(Long userId) {
+        lock.readLock().lock();
+        try {
+            return filmsByUser.getOrDefault(userId, EMPTY).toArray();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long[] getCommonFilms(Collection<Long> userIds) {
+        lock.readLock().lock();
+        try {
+            List<LikeSet> sets = new ArrayList<>(userIds.size());
+            for (Long userId : userIds) {
+                LikeSet films = filmsByUser.get(userId);
+                if (films == null) {
+                    return EMPTY.toArray();
+                }
+                sets.add(films);
+            }
+            return LikeSet.intersect(sets);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Map<Long, long[]> snapshotUserFilms(Runnable whileLocked) {
+        lock.readLock().lock();
+        try {
+            whileLocked.run();
+            Map<Long, long[]> snapshot = new HashMap<>();
+            filmsByUser.forEach((userId, films) -> snapshot.put(userId, films.toArray()));
+            return snapshot;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void addListener(LikeMatrixListener listener) {
+        listeners.add(listener);
+    }
+
+    private boolean put(long filmId, long userId) {
+        if (!filmsByUser.computeIfAbsent(userId, id -> new LikeSet()).add(filmId)) {
+            return false;
+        }
+        usersByFilm.computeIfAbsent(filmId, id -> new LikeSet()).add(userId);
+        return true;
+    }
+
+    private boolean delete(long filmId, long userId) {
+        if (!removeFrom(filmsByUser, userId, filmId)) {
+            return false;
+        }
+        removeFrom(usersByFilm, filmId, userId);
+        return true;
+    }
+
+    private LikeSet deleteUser(long userId) {
+        LikeSet films = filmsByUser.remove(userId);
+        if (films != null) {
+            films.stream().forEach(filmId -> removeFrom(usersByFilm, filmId, userId));
+        }
+        return films;
+    }
+
+    private LikeSet deleteFilm(long filmId) {
+        LikeSet users = usersByFilm.remove(filmId);
+        if (users != null) {
+            users.stream().forEach(userId -> removeFrom(filmsByUser, userId, filmId));
+        }
+        return users;
+    }
+
+    private void record(Runnable change) {
+        if (pendingDuringRebuild != null) {
+            pendingDuringRebuild.add(change);
+        }
+    }
+
+    private static boolean removeFrom(Map<Long, LikeSet> sets, Long key, long value) {
+        LikeSet set = sets.get(key);
+        if (set == null || !set.remove(value)) {
+            return false;
+        }
+        if (set.isEmpty()) {
+            sets.remove(key);
+        }
+        return true;
+    }
+}
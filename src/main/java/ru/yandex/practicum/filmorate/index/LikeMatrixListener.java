@@ -0,0 +1,11 @@
+package ru.yandex.practicum.filmorate.index;
+
+public interface LikeMatrixListener {
+    void likeAdded(long filmId, long userId, long[] userFilms);
+
+    void likeRemoved(long filmId, long userId, long[] userFilms);
+
+    void userRemoved(long userId, long[] userFilms);
+
+    void filmRemoved(long filmId, long[] filmUsers);
+}
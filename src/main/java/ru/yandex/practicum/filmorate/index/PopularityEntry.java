@@ -0,0 +1,16 @@
+package ru.yandex.practicum.filmorate.index;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.Set;
+
+@Data
+@AllArgsConstructor
+public class PopularityEntry {
+    private long filmId;
+    private int likes;
+    private int year;
+    private Set<Long> genreIds;
+    private Set<Long> directorIds;
+}
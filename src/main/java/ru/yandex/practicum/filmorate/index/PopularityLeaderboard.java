@@ -0,0 +1,344 @@
+package ru.yandex.practicum.filmorate.index;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.dal.FilmDbStorage;
+import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PopularityLeaderboard {
+    private static final Comparator<Rank> BY_LIKES_DESC = Comparator
+            .comparingInt(Rank::likes).reversed()
+            .thenComparingLong(Rank::filmId);
+
+    private final FilmDbStorage filmStorage;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, PopularityEntry> entries = new HashMap<>();
+    private final NavigableSet<Rank> all = new TreeSet<>(BY_LIKES_DESC);
+    private final Map<Long, NavigableSet<Rank>> byGenre = new HashMap<>();
+    private final Map<Integer, NavigableSet<Rank>> byYear = new HashMap<>();
+    private final Map<Long, NavigableSet<Rank>> byDirector = new HashMap<>();
+    private List<Runnable> pendingDuringRebuild;
+    private Set<Long> likesChangedDuringRebuild;
+    private final List<Consumer<Set<Long>>> likesListeners = new CopyOnWriteArrayList<>();
+
+    @Order(0)
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        log.info("Перестроение рейтинга популярности фильмов");
+        lock.writeLock().lock();
+        try {
+            pendingDuringRebuild = new ArrayList<>();
+            likesChangedDuringRebuild = new HashSet<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        List<PopularityEntry> loaded;
+        try {
+            loaded = filmStorage.getPopularityEntries();
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                pendingDuringRebuild = null;
+                likesChangedDuringRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+        int replayed;
+        lock.writeLock().lock();
+        try {
+            Map<Long, Integer> currentLikes = new HashMap<>();
+            likesChangedDuringRebuild.forEach(filmId -> {
+                PopularityEntry entry = entries.get(filmId);
+                if (entry != null) {
+                    currentLikes.put(filmId, entry.getLikes());
+                }
+            });
+            entries.clear();
+            all.clear();
+            byGenre.clear();
+            byYear.clear();
+            byDirector.clear();
+            loaded.forEach(this::insert);
+            pendingDuringRebuild.forEach(Runnable::run);
+            currentLikes.forEach(this::setLikes);
+            replayed = pendingDuringRebuild.size() + currentLikes.size();
+            pendingDuringRebuild = null;
+            likesChangedDuringRebuild = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Рейтинг популярности построен для {} фильмов, повторно применено изменений: {}", loaded.size(), replayed);
+    }
+
+    public List<Long> getTop(Integer count, Long genreId, Integer year) {
+        lock.readLock().lock();
+        try {
+            NavigableSet<Rank> genrePartition = genreId == null ? null : byGenre.getOrDefault(genreId, Collections.emptyNavigableSet());
+            NavigableSet<Rank> yearPartition = year == null ? null : byYear.getOrDefault(year, Collections.emptyNavigableSet());
+
+            if (genrePartition != null && yearPartition != null) {
+                if (genrePartition.size() <= yearPartition.size()) {
+                    return collect(genrePartition, count, rank -> entries.get(rank.filmId()).getYear() == year);
+                }
+                return collect(yearPartition, count, rank -> entries.get(rank.filmId()).getGenreIds().contains(genreId));
+            }
+            if (genrePartition != null) {
+                return collect(genrePartition, count, rank -> true);
+            }
+            if (yearPartition != null) {
+                return collect(yearPartition, count, rank -> true);
+            }
+            return collect(all, count, rank -> true);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<Rank> getPage(Long genreId, Integer year, Rank after, int limit) {
+        lock.readLock().lock();
+        try {
+            NavigableSet<Rank> partition;
+            Predicate<Rank> filter = rank -> true;
+            if (genreId != null) {
+                partition = byGenre.getOrDefault(genreId, Collections.emptyNavigableSet());
+                if (year != null) {
+                    filter = rank -> entries.get(rank.filmId()).getYear() == year;
+                }
+            } else if (year != null) {
+                partition = byYear.getOrDefault(year, Collections.emptyNavigableSet());
+            } else {
+                partition = all;
+            }
+            if (after != null) {
+                partition = partition.tailSet(after, false);
+            }
+            List<Rank> page = new ArrayList<>(limit);
+            for (Rank rank : partition) {
+                if (page.size() >= limit) {
+                    break;
+                }
+                if (filter.test(rank)) {
+                    page.add(rank);
+                }
+            }
+            return page;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<Long> getTopByDirector(Long directorId) {
+        lock.readLock().lock();
+        try {
+            return collect(byDirector.getOrDefault(directorId, Collections.emptyNavigableSet()), null, rank -> true);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int getLikes(Long filmId) {
+        lock.readLock().lock();
+        try {
+            PopularityEntry entry = entries.get(filmId);
+            return entry == null ? 0 : entry.getLikes();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long getDirectorLikes(Long directorId) {
+        lock.readLock().lock();
+        try {
+            long likes = 0;
+            for (Rank rank : byDirector.getOrDefault(directorId, Collections.emptyNavigableSet())) {
+                likes += rank.likes();
+            }
+            return likes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<Long> sortByPopularity(Collection<Long> filmIds) {
+        lock.readLock().lock();
+        try {
+            return filmIds.stream()
+                    .map(filmId -> {
+                        PopularityEntry entry = entries.get(filmId);
+                        return new Rank(filmId, entry == null ? 0 : entry.getLikes());
+                    })
+                    .sorted(BY_LIKES_DESC)
+                    .map(Rank::filmId)
+                    .collect(Collectors.toList());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void upsertFilm(Film film) {
+        long filmId = film.getId();
+        int likesCount = film.getLikesCount() == null ? 0 : film.getLikesCount();
+        int year = film.getReleaseDate().getYear();
+        Set<Long> genreIds = film.getGenres().stream().map(Genre::getId).collect(Collectors.toSet());
+        Set<Long> directorIds = film.getDirectors().stream().map(Director::getId).collect(Collectors.toSet());
+        mutate(() -> {
+            PopularityEntry previous = remove(filmId);
+            int likes = previous != null ? previous.getLikes() : likesCount;
+            insert(new PopularityEntry(filmId, likes, year, new HashSet<>(genreIds), new HashSet<>(directorIds)));
+        });
+    }
+
+    public void removeFilm(Long filmId) {
+        mutate(() -> remove(filmId));
+    }
+
+    public void changeLikes(Long filmId, int delta) {
+        mutateLikes(Set.of(filmId), () -> applyLikesDelta(filmId, delta));
+        notifyLikesChanged(Set.of(filmId));
+    }
+
+    public void changeLikes(Map<Long, Integer> deltas) {
+        Map<Long, Integer> copy = new HashMap<>(deltas);
+        mutateLikes(copy.keySet(), () -> copy.forEach(this::applyLikesDelta));
+        notifyLikesChanged(copy.keySet());
+    }
+
+    public void addLikesListener(Consumer<Set<Long>> listener) {
+        likesListeners.add(listener);
+    }
+
+    private void notifyLikesChanged(Set<Long> filmIds) {
+        likesListeners.forEach(listener -> listener.accept(filmIds));
+    }
+
+    private void applyLikesDelta(Long filmId, int delta) {
+        PopularityEntry entry = remove(filmId);
+        if (entry == null) {
+            log.warn("Фильм {} отсутствует в рейтинге популярности", filmId);
+            return;
+        }
+        entry.setLikes(Math.max(0, entry.getLikes() + delta));
+        insert(entry);
+    }
+
+    private void setLikes(Long filmId, int likes) {
+        PopularityEntry entry = remove(filmId);
+        if (entry != null) {
+            entry.setLikes(likes);
+            insert(entry);
+        }
+    }
+
+    public void removeDirector(Long directorId) {
+        mutate(() -> {
+            NavigableSet<Rank> partition = byDirector.remove(directorId);
+            if (partition != null) {
+                partition.forEach(rank -> entries.get(rank.filmId()).getDirectorIds().remove(directorId));
+            }
+        });
+    }
+
+    public boolean checkConsistency(Integer count, Long genreId, Integer year) {
+        List<Long> fromLeaderboard = getTop(count, genreId, year);
+        List<Long> fromDb = filmStorage.getPopularFilmIds(count, genreId, year);
+        if (fromLeaderboard.equals(fromDb)) {
+            log.debug("Рейтинг популярности совпадает с БД (count={}, genreId={}, year={})", count, genreId, year);
+            return true;
+        }
+        log.warn("Рейтинг популярности расходится с БД (count={}, genreId={}, year={}): в памяти {}, в БД {}",
+                count, genreId, year, fromLeaderboard.size(), fromDb.size());
+        return false;
+    }
+
+    private void mutate(Runnable mutation) {
+        lock.writeLock().lock();
+        try {
+            mutation.run();
+            if (pendingDuringRebuild != null) {
+                pendingDuringRebuild.add(mutation);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void mutateLikes(Set<Long> filmIds, Runnable mutation) {
+        lock.writeLock().lock();
+        try {
+            mutation.run();
+            if (likesChangedDuringRebuild != null) {
+                likesChangedDuringRebuild.addAll(filmIds);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private List<Long> collect(NavigableSet<Rank> partition, Integer count, Predicate<Rank> filter) {
+        int limit = count == null ? Integer.MAX_VALUE : count;
+        List<Long> result = new ArrayList<>(Math.min(limit, partition.size()));
+        for (Rank rank : partition) {
+            if (result.size() >= limit) {
+                break;
+            }
+            if (filter.test(rank)) {
+                result.add(rank.filmId());
+            }
+        }
+        return result;
+    }
+
+    private void insert(PopularityEntry entry) {
+        Rank rank = new Rank(entry.getFilmId(), entry.getLikes());
+        entries.put(entry.getFilmId(), entry);
+        all.add(rank);
+        byYear.computeIfAbsent(entry.getYear(), key -> new TreeSet<>(BY_LIKES_DESC)).add(rank);
+        entry.getGenreIds().forEach(genreId ->
+                byGenre.computeIfAbsent(genreId, key -> new TreeSet<>(BY_LIKES_DESC)).add(rank));
+        entry.getDirectorIds().forEach(directorId ->
+                byDirector.computeIfAbsent(directorId, key -> new TreeSet<>(BY_LIKES_DESC)).add(rank));
+    }
+
+    private PopularityEntry remove(Long filmId) {
+        PopularityEntry entry = entries.remove(filmId);
+        if (entry == null) {
+            return null;
+        }
+        Rank rank = new Rank(entry.getFilmId(), entry.getLikes());
+        all.remove(rank);
+        removeFromPartition(byYear, entry.getYear(), rank);
+        entry.getGenreIds().forEach(genreId -> removeFromPartition(byGenre, genreId, rank));
+        entry.getDirectorIds().forEach(directorId -> removeFromPartition(byDirector, directorId, rank));
+        return entry;
+    }
+
+    private <K> void removeFromPartition(Map<K, NavigableSet<Rank>> partitions, K key, Rank rank) {
+        NavigableSet<Rank> partition = partitions.get(key);
+        if (partition != null && partition.remove(rank) && partition.isEmpty()) {
+            partitions.remove(key);
+        }
+    }
+
+    public record Rank(long filmId, int likes) {
+    }
+}
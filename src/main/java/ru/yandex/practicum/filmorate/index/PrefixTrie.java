@@ -0,0 +1,217 @@
+package ru.yandex.practicum.filmorate.index;
+
+import ru.yandex.practicum.filmorate.model.enums.SuggestionType;
+
+import java.util.*;
+
+class PrefixTrie {
+    static final int TOP_SIZE = 20;
+
+    private static final Comparator<Entry> BY_WEIGHT_DESC = Comparator
+            .comparingLong(Entry::weight).reversed()
+            .thenComparing(Entry::type)
+            .thenComparingLong(Entry::id);
+    private static final Entry[] NO_ENTRIES = new Entry[0];
+
+    private final Node root = new Node("");
+
+    void put(String key, Entry entry) {
+        List<Node> path = new ArrayList<>();
+        Node node = root;
+        int position = 0;
+        path.add(node);
+        while (position < key.length()) {
+            int index = node.childIndex(key.charAt(position));
+            if (index < 0) {
+                Node leaf = new Node(key.substring(position));
+                node.insertChild(-index - 1, leaf);
+                node = leaf;
+                position = key.length();
+            } else {
+                Node child = node.children[index];
+                int common = commonPrefixLength(child.label, key, position);
+                if (common < child.label.length()) {
+                    child = node.splitChild(index, common);
+                }
+                node = child;
+                position += common;
+            }
+            path.add(node);
+        }
+        node.entries = append(node.entries, entry);
+        recompute(path);
+    }
+
+    void remove(String key, SuggestionType type, long id) {
+        List<Node> path = findPath(key);
+        if (path == null) {
+            return;
+        }
+        Node node = path.getLast();
+        Entry[] remaining = Arrays.stream(node.entries)
+                .filter(entry -> entry.type() != type || entry.id() != id)
+                .toArray(Entry[]::new);
+        if (remaining.length == node.entries.length) {
+            return;
+        }
+        node.entries = remaining.length == 0 ? NO_ENTRIES : remaining;
+        for (int i = path.size() - 1; i > 0; i--) {
+            Node current = path.get(i);
+            if (current.entries.length > 0 || current.children.length > 0) {
+                break;
+            }
+            path.get(i - 1).removeChild(current);
+            path.remove(i);
+        }
+        recompute(path);
+    }
+
+    void update(String key, Entry entry) {
+        List<Node> path = findPath(key);
+        if (path == null) {
+            return;
+        }
+        Node node = path.getLast();
+        for (int i = 0; i < node.entries.length; i++) {
+            if (node.entries[i].type() == entry.type() && node.entries[i].id() == entry.id()) {
+                node.entries[i] = entry;
+                recompute(path);
+                return;
+            }
+        }
+    }
+
+    List<Entry> top(String prefix) {
+        Node node = root;
+        int position = 0;
+        while (position < prefix.length()) {
+            int index = node.childIndex(prefix.charAt(position));
+            if (index < 0) {
+                return Collections.emptyList();
+            }
+            Node child = node.children[index];
+            int common = commonPrefixLength(child.label, prefix, position);
+            if (position + common < prefix.length() && common < child.label.length()) {
+                return Collections.emptyList();
+            }
+            node = child;
+            position += common;
+        }
+        return Arrays.asList(node.top);
+    }
+
+    private List<Node> findPath(String key) {
+        List<Node> path = new ArrayList<>();
+        Node node = root;
+        int position = 0;
+        path.add(node);
+        while (position < key.length()) {
+            int index = node.childIndex(key.charAt(position));
+            if (index < 0) {
+                return null;
+            }
+            node = node.children[index];
+            if (!key.startsWith(node.label, position)) {
+                return null;
+            }
+            position += node.label.length();
+            path.add(node);
+        }
+        return path;
+    }
+
+    private void recompute(List<Node> path) {
+        for (int i = path.size() - 1; i >= 0; i--) {
+            Node node = path.get(i);
+            PriorityQueue<Entry> best = new PriorityQueue<>(BY_WEIGHT_DESC.reversed());
+            offerAll(best, node.entries);
+            for (Node child : node.children) {
+                offerAll(best, child.top);
+            }
+            Entry[] top = new Entry[best.size()];
+            for (int j = top.length - 1; j >= 0; j--) {
+                top[j] = best.poll();
+            }
+            node.top = top;
+        }
+    }
+
+    private static void offerAll(PriorityQueue<Entry> best, Entry[] entries) {
+        for (Entry entry : entries) {
+            best.offer(entry);
+            if (best.size() > TOP_SIZE) {
+                best.poll();
+            }
+        }
+    }
+
+    private static Entry[] append(Entry[] entries, Entry entry) {
+        Entry[] result = Arrays.copyOf(entries, entries.length + 1);
+        result[entries.length] = entry;
+        return result;
+    }
+
+    private static int commonPrefixLength(String label, String key, int offset) {
+        int max = Math.min(label.length(), key.length() - offset);
+        int i = 0;
+        while (i < max && label.charAt(i) == key.charAt(offset + i)) {
+            i++;
+        }
+        return i;
+    }
+
+    record Entry(SuggestionType type, long id, String name, long weight) {
+    }
+
+    private static class Node {
+        private String label;
+        private char[] firstChars = new char[0];
+        private Node[] children = new Node[0];
+        private Entry[] entries = NO_ENTRIES;
+        private Entry[] top = NO_ENTRIES;
+
+        private Node(String label) {
+            this.label = label;
+        }
+
+        private int childIndex(char c) {
+            return Arrays.binarySearch(firstChars, c);
+        }
+
+        private void insertChild(int index, Node child) {
+            char[] chars = new char[firstChars.length + 1];
+            Node[] nodes = new Node[children.length + 1];
+            System.arraycopy(firstChars, 0, chars, 0, index);
+            System.arraycopy(children, 0, nodes, 0, index);
+            chars[index] = child.label.charAt(0);
+            nodes[index] = child;
+            System.arraycopy(firstChars, index, chars, index + 1, firstChars.length - index);
+            System.arraycopy(children, index, nodes, index + 1, children.length - index);
+            firstChars = chars;
+            children = nodes;
+        }
+
+        private void removeChild(Node child) {
+            int index = childIndex(child.label.charAt(0));
+            char[] chars = new char[firstChars.length - 1];
+            Node[] nodes = new Node[children.length - 1];
+            System.arraycopy(firstChars, 0, chars, 0, index);
+            System.arraycopy(children, 0, nodes, 0, index);
+            System.arraycopy(firstChars, index + 1, chars, index, chars.length - index);
+            System.arraycopy(children, index + 1, nodes, index, nodes.length - index);
+            firstChars = chars;
+            children = nodes;
+        }
+
+        private Node splitChild(int index, int length) {
+            Node child = children[index];
+            Node middle = new Node(child.label.substring(0, length));
+            child.label = child.label.substring(length);
+            middle.firstChars = new char[]{child.label.charAt(0)};
+            middle.children = new Node[]{child};
+            middle.top = child.top;
+            children[index] = middle;
+            return middle;
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package ru.yandex.practicum.filmorate.index;
+
+import java.util.List;
+
+public interface RecommendationStrategy {
+    String getName();
+
+    List<Long> recommend(Long userId, int size);
+
+    default long getModelVersion() {
+        return 0;
+    }
+}
@@ -0,0 +1,16 @@
+package ru.yandex.practicum.filmorate.index;
+
+class ScalarFactorScorer implements FactorScorer {
+
+    @Override
+    public void scoreAll(float[] userFactors, int userOffset, float[] filmFactors, int rank, float[] scores) {
+        for (int film = 0; film < scores.length; film++) {
+            int filmOffset = film * rank;
+            float sum = 0;
+            for (int i = 0; i < rank; i++) {
+                sum += userFactors[userOffset + i] * filmFactors[filmOffset + i];
+            }
+            scores[film] = sum;
+        }
+    }
+}
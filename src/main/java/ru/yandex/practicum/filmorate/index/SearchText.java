@@ -0,0 +1,27 @@
+package ru.yandex.practicum.filmorate.index;
+
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+final class SearchText {
+    static final int GRAM_LENGTH = 3;
+
+    private SearchText() {
+    }
+
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        return text.toLowerCase(Locale.ROOT).replace('ё', 'е');
+    }
+
+    static Set<String> trigrams(String normalized) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM_LENGTH <= normalized.length(); i++) {
+            grams.add(normalized.substring(i, i + GRAM_LENGTH));
+        }
+        return grams;
+    }
+}
@@ -0,0 +1,63 @@
+package ru.yandex.practicum.filmorate.index;
+
+import java.util.*;
+
+class TrigramIndex {
+    private final Map<String, Set<Long>> postings = new HashMap<>();
+    private final Map<Long, String> texts = new HashMap<>();
+
+    void put(long id, String text) {
+        remove(id);
+        String normalized = SearchText.normalize(text);
+        texts.put(id, normalized);
+        SearchText.trigrams(normalized).forEach(gram ->
+                postings.computeIfAbsent(gram, key -> new HashSet<>()).add(id));
+    }
+
+    void remove(long id) {
+        String previous = texts.remove(id);
+        if (previous == null) {
+            return;
+        }
+        SearchText.trigrams(previous).forEach(gram -> {
+            Set<Long> ids = postings.get(gram);
+            if (ids != null && ids.remove(id) && ids.isEmpty()) {
+                postings.remove(gram);
+            }
+        });
+    }
+
+    int size() {
+        return texts.size();
+    }
+
+    Set<Long> find(String normalizedQuery) {
+        if (normalizedQuery.length() < SearchText.GRAM_LENGTH) {
+            return scan(texts.keySet(), normalizedQuery);
+        }
+        List<Set<Long>> lists = new ArrayList<>();
+        for (String gram : SearchText.trigrams(normalizedQuery)) {
+            Set<Long> ids = postings.get(gram);
+            if (ids == null) {
+                return Collections.emptySet();
+            }
+            lists.add(ids);
+        }
+        lists.sort(Comparator.comparingInt(Set::size));
+        Set<Long> candidates = new HashSet<>(lists.getFirst());
+        for (int i = 1; i < lists.size() && !candidates.isEmpty(); i++) {
+            candidates.retainAll(lists.get(i));
+        }
+        return scan(candidates, normalizedQuery);
+    }
+
+    private Set<Long> scan(Collection<Long> ids, String normalizedQuery) {
+        Set<Long> matches = new HashSet<>();
+        for (Long id : ids) {
+            if (texts.get(id).contains(normalizedQuery)) {
+                matches.add(id);
+            }
+        }
+        return matches;
+    }
+}
@@ -0,0 +1,29 @@
+package ru.yandex.practicum.filmorate.index;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+class VectorFactorScorer implements FactorScorer {
+    private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+
+    @Override
+    public void scoreAll(float[] userFactors, int userOffset, float[] filmFactors, int rank, float[] scores) {
+        int upperBound = SPECIES.loopBound(rank);
+        for (int film = 0; film < scores.length; film++) {
+            int filmOffset = film * rank;
+            FloatVector accumulator = FloatVector.zero(SPECIES);
+            int i = 0;
+            for (; i < upperBound; i += SPECIES.length()) {
+                FloatVector user = FloatVector.fromArray(SPECIES, userFactors, userOffset + i);
+                FloatVector item = FloatVector.fromArray(SPECIES, filmFactors, filmOffset + i);
+                accumulator = user.fma(item, accumulator);
+            }
+            float sum = accumulator.reduceLanes(VectorOperators.ADD);
+            for (; i < rank; i++) {
+                sum += userFactors[userOffset + i] * filmFactors[filmOffset + i];
+            }
+            scores[film] = sum;
+        }
+    }
+}
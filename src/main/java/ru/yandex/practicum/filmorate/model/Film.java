@@ -1,5 +1,7 @@
 package ru.yandex.practicum.filmorate.model;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.validation.constraints.*;
 import lombok.Data;
 
@@ -22,13 +24,18 @@ public class Film {
     @Positive(message = "Продолжительность фильма должна быть положительным числом")
     private int duration;
 
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private LikeSet likes = new LikeSet();
 
-    private Set<Long> likes = new HashSet<>();
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Integer likesCount;
 
     private MpaRating mpa = new MpaRating(null, null);
 
+    @JsonInclude(JsonInclude.Include.NON_NULL)
     private Set<Genre> genres = new LinkedHashSet<>();
 
+    @JsonInclude(JsonInclude.Include.NON_NULL)
     private Set<Director> directors = new LinkedHashSet<>();
 
 }
\ No newline at end of file
@@ -0,0 +1,30 @@
+package ru.yandex.practicum.filmorate.model;
+
+import jakarta.validation.constraints.*;
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.util.Set;
+
+@Data
+public class FilmPatch {
+    @NotNull(message = "Id фильма должен быть указан")
+    private Long id;
+
+    @Pattern(regexp = "(?s).*\\S.*", message = "Название фильма не может быть пустым")
+    private String name;
+
+    @Size(max = 200, message = "Максимальная длина описания фильма — 200 символов")
+    private String description;
+
+    private LocalDate releaseDate;
+
+    @Positive(message = "Продолжительность фильма должна быть положительным числом")
+    private Integer duration;
+
+    private MpaRating mpa;
+
+    private Set<Genre> genres;
+
+    private Set<Director> directors;
+}
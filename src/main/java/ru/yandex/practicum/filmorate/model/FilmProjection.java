@@ -0,0 +1,47 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import ru.yandex.practicum.filmorate.exceptions.ParameterNotValidException;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+@Getter
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class FilmProjection {
+    public static final FilmProjection FULL = new FilmProjection(true, true, true);
+    public static final FilmProjection SUMMARY = new FilmProjection(false, true, true);
+
+    private static final String FULL_VIEW = "full";
+    private static final String SUMMARY_VIEW = "summary";
+    private static final Set<String> FIELDS = Set.of("likes", "genres", "directors");
+
+    private final boolean likes;
+    private final boolean genres;
+    private final boolean directors;
+
+    public static FilmProjection of(String view, String[] fields) {
+        if (fields != null && fields.length > 0) {
+            Set<String> requested = Arrays.stream(fields)
+                    .map(String::trim)
+                    .map(String::toLowerCase)
+                    .collect(Collectors.toSet());
+            if (!FIELDS.containsAll(requested)) {
+                throw new ParameterNotValidException("Параметр fields может содержать только: likes, genres, directors");
+            }
+            return new FilmProjection(requested.contains("likes"),
+                    requested.contains("genres"),
+                    requested.contains("directors"));
+        }
+        if (view == null || FULL_VIEW.equalsIgnoreCase(view)) {
+            return FULL;
+        }
+        if (SUMMARY_VIEW.equalsIgnoreCase(view)) {
+            return SUMMARY;
+        }
+        throw new ParameterNotValidException("Параметр view может быть только: full, summary");
+    }
+}
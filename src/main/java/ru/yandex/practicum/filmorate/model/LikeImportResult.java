@@ -0,0 +1,19 @@
+package ru.yandex.practicum.filmorate.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class LikeImportResult {
+    private int batch;
+    private int received;
+    private int inserted;
+    private int duplicates;
+
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    private List<Integer> rejectedLines;
+}
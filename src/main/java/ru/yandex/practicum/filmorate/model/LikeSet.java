@@ -0,0 +1,179 @@
+package ru.yandex.practicum.filmorate.model;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.stream.LongStream;
+
+@JsonSerialize(using = LikeSet.Serializer.class)
+@JsonDeserialize(using = LikeSet.Deserializer.class)
+public final class LikeSet {
+    private static final long[] EMPTY = new long[0];
+    private static final int MIN_CAPACITY = 4;
+
+    private long[] values;
+    private int size;
+
+    public LikeSet() {
+        this.values = EMPTY;
+    }
+
+    private LikeSet(long[] values, int size) {
+        this.values = values;
+        this.size = size;
+    }
+
+    public static LikeSet of(long... ids) {
+        long[] sorted = ids.clone();
+        Arrays.sort(sorted);
+        int size = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (size == 0 || sorted[size - 1] != sorted[i]) {
+                sorted[size++] = sorted[i];
+            }
+        }
+        return new LikeSet(sorted, size);
+    }
+
+    public static long[] intersect(Collection<LikeSet> sets) {
+        if (sets.isEmpty()) {
+            return EMPTY;
+        }
+        List<LikeSet> bySize = new ArrayList<>(sets);
+        bySize.sort(Comparator.comparingInt(LikeSet::size));
+        long[] result = bySize.getFirst().toArray();
+        int length = result.length;
+        for (int i = 1; i < bySize.size() && length > 0; i++) {
+            length = bySize.get(i).retainContained(result, length);
+        }
+        return Arrays.copyOf(result, length);
+    }
+
+    public boolean contains(long id) {
+        return Arrays.binarySearch(values, 0, size, id) >= 0;
+    }
+
+    public boolean add(long id) {
+        if (size > 0 && values[size - 1] < id) {
+            ensureCapacity(size + 1);
+            values[size++] = id;
+            return true;
+        }
+        int index = Arrays.binarySearch(values, 0, size, id);
+        if (index >= 0) {
+            return false;
+        }
+        int insertAt = -index - 1;
+        ensureCapacity(size + 1);
+        System.arraycopy(values, insertAt, values, insertAt + 1, size - insertAt);
+        values[insertAt] = id;
+        size++;
+        return true;
+    }
+
+    public boolean remove(long id) {
+        int index = Arrays.binarySearch(values, 0, size, id);
+        if (index < 0) {
+            return false;
+        }
+        System.arraycopy(values, index + 1, values, index, size - index - 1);
+        size--;
+        return true;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public long[] toArray() {
+        return Arrays.copyOf(values, size);
+    }
+
+    public LongStream stream() {
+        return Arrays.stream(values, 0, size);
+    }
+
+    public void trimToSize() {
+        if (values.length != size) {
+            values = size == 0 ? EMPTY : Arrays.copyOf(values, size);
+        }
+    }
+
+    private int retainContained(long[] candidates, int length) {
+        int kept = 0;
+        int from = 0;
+        for (int i = 0; i < length && from < size; i++) {
+            from = gallop(candidates[i], from);
+            if (from < size && values[from] == candidates[i]) {
+                candidates[kept++] = candidates[i];
+            }
+        }
+        return kept;
+    }
+
+    private int gallop(long id, int from) {
+        int bound = 1;
+        while (from + bound < size && values[from + bound] < id) {
+            bound <<= 1;
+        }
+        int index = Arrays.binarySearch(values, from + (bound >> 1), Math.min(from + bound + 1, size), id);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (values.length < capacity) {
+            values = Arrays.copyOf(values, Math.max(capacity, Math.max(MIN_CAPACITY, values.length + (values.length >> 1))));
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof LikeSet other)) {
+            return false;
+        }
+        return Arrays.equals(values, 0, size, other.values, 0, other.size);
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 1;
+        for (int i = 0; i < size; i++) {
+            hash = 31 * hash + Long.hashCode(values[i]);
+        }
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(toArray());
+    }
+
+    public static class Serializer extends JsonSerializer<LikeSet> {
+        @Override
+        public void serialize(LikeSet likes, JsonGenerator gen, SerializerProvider serializers) throws IOException {
+            gen.writeArray(likes.values, 0, likes.size);
+        }
+    }
+
+    public static class Deserializer extends JsonDeserializer<LikeSet> {
+        @Override
+        public LikeSet deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            return LikeSet.of(ctxt.readValue(p, long[].class));
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class LikesCountDrift {
+    private Long filmId;
+    private int storedCount;
+    private int actualCount;
+}
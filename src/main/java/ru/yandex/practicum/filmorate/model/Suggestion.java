@@ -0,0 +1,13 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import ru.yandex.practicum.filmorate.model.enums.SuggestionType;
+
+@Data
+@AllArgsConstructor
+public class Suggestion {
+    private SuggestionType type;
+    private Long id;
+    private String name;
+}
@@ -0,0 +1,17 @@
+package ru.yandex.practicum.filmorate.model.enums;
+
+import ru.yandex.practicum.filmorate.exceptions.ParameterNotValidException;
+
+public enum SearchMode {
+    EXACT,
+    FUZZY;
+
+    public static SearchMode from(String mode) {
+        for (SearchMode searchMode : values()) {
+            if (searchMode.name().equalsIgnoreCase(mode)) {
+                return searchMode;
+            }
+        }
+        throw new ParameterNotValidException("Параметр mode может быть только: exact, fuzzy");
+    }
+}
@@ -1,7 +1,35 @@
 package ru.yandex.practicum.filmorate.model.enums;
 
+import ru.yandex.practicum.filmorate.exceptions.ParameterNotValidException;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.stream.Collectors;
+
 public enum SearchType {
     BOTH,
     TITLE,
-    DIRECTOR
+    DIRECTOR;
+
+    public static SearchType from(String[] by) {
+        if (by == null || by.length == 0 || by.length > 2) {
+            throw new ParameterNotValidException("Параметр by должен содержать 1 или 2 значения (title/director)");
+        }
+
+        Set<String> params = Arrays.stream(by)
+                .map(String::toLowerCase)
+                .collect(Collectors.toSet());
+
+        if (params.size() == 2 && params.contains("title") && params.contains("director")) {
+            return BOTH;
+        }
+        if (params.size() == 1) {
+            if (params.contains("title")) return TITLE;
+            if (params.contains("director")) return DIRECTOR;
+        }
+
+        throw new ParameterNotValidException(
+                "Параметр by должен содержать только 'title' и/или 'director'"
+        );
+    }
 }
@@ -4,6 +4,8 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.dal.DirectorRepository;
+import ru.yandex.practicum.filmorate.index.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.index.PopularityLeaderboard;
 import ru.yandex.practicum.filmorate.model.Director;
 
 import java.util.List;
@@ -13,6 +15,8 @@ import java.util.List;
 @RequiredArgsConstructor
 public class DirectorService {
     private final DirectorRepository directorRepository;
+    private final PopularityLeaderboard popularityLeaderboard;
+    private final FilmSearchIndex filmSearchIndex;
 
     public List<Director> getAllDirectors() {
         log.info("Получение списка всех режиссёров на уровне сервиса");
@@ -26,17 +30,23 @@ public class DirectorService {
 
     public Director createDirector(Director director) {
         log.info("Создание режиссёра на уровне сервиса");
-        return directorRepository.addDirector(director);
+        Director created = directorRepository.addDirector(director);
+        filmSearchIndex.upsertDirector(created);
+        return created;
     }
 
     public Director updateDirector(Director director) {
         log.info("Обновление режиссёра на уровне сервиса");
-        return directorRepository.updateDirector(director);
+        Director updated = directorRepository.updateDirector(director);
+        filmSearchIndex.upsertDirector(updated);
+        return updated;
     }
 
     public void deleteDirector(Long id) {
         log.info("Удаление режиссёра с ID {} на уровне сервиса", id);
         directorRepository.deleteDirector(id);
+        popularityLeaderboard.removeDirector(id);
+        filmSearchIndex.removeDirector(id);
     }
 
 }
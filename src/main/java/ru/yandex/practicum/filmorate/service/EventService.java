@@ -4,6 +4,7 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.dal.EventRepository;
+import ru.yandex.practicum.filmorate.dal.LikeWriteQueue;
 import ru.yandex.practicum.filmorate.model.Event;
 import ru.yandex.practicum.filmorate.model.enums.EventOperation;
 import ru.yandex.practicum.filmorate.model.enums.EventType;
@@ -15,6 +16,8 @@ import java.util.List;
 @RequiredArgsConstructor
 public class EventService {
     private final EventRepository eventRepository;
+    private final LikeWriteQueue likeWriteQueue;
+    private final ExistenceService existenceService;
 
     public void addEvent(Long userId, EventType eventType, EventOperation operation, Long entityId) {
         log.info("Добавление события");
@@ -23,6 +26,8 @@ public class EventService {
 
     public List<Event> getUserFeed(Long userId) {
         log.info("Получение ленты для пользователя с ID {} на уровне сервиса", userId);
+        existenceService.requireUser(userId);
+        likeWriteQueue.awaitWritten(userId);
         return eventRepository.getUserFeed(userId);
     }
 }
@@ -0,0 +1,108 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.dal.FilmDbStorage;
+import ru.yandex.practicum.filmorate.dal.UserDbStorage;
+import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
+import ru.yandex.practicum.filmorate.index.IdBitmap;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ExistenceService {
+    private final UserDbStorage userStorage;
+    private final FilmDbStorage filmStorage;
+
+    private final IdBitmap users = new IdBitmap();
+    private final IdBitmap films = new IdBitmap();
+
+    @Order(0)
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        log.info("Построение индекса существующих пользователей и фильмов");
+        users.rebuild(userStorage::forEachUserId);
+        films.rebuild(filmStorage::forEachFilmId);
+        log.info("Индекс существования построен: {} пользователей, {} фильмов", users.size(), films.size());
+    }
+
+    public void requireUser(Long id) {
+        if (!exists(users, id, userStorage::existsById)) {
+            throw new NotFoundException("Пользователь с id " + id + " не найден");
+        }
+    }
+
+    public void requireUsers(Collection<Long> ids) {
+        Set<Long> existing = findExistingUsers(ids);
+        for (Long id : ids) {
+            if (!existing.contains(id)) {
+                throw new NotFoundException("Пользователь с id " + id + " не найден");
+            }
+        }
+    }
+
+    public void requireFilm(Long id) {
+        if (!exists(films, id, filmStorage::existsById)) {
+            throw new NotFoundException("Фильм с id " + id + " не найден");
+        }
+    }
+
+    public Set<Long> findExistingUsers(Collection<Long> ids) {
+        return findExisting(users, ids, userStorage::findExistingIds);
+    }
+
+    public Set<Long> findExistingFilms(Collection<Long> ids) {
+        return findExisting(films, ids, filmStorage::findExistingIds);
+    }
+
+    public void userAdded(Long id) {
+        users.add(id);
+    }
+
+    public void userRemoved(Long id) {
+        users.remove(id);
+    }
+
+    public void filmAdded(Long id) {
+        films.add(id);
+    }
+
+    public void filmRemoved(Long id) {
+        films.remove(id);
+    }
+
+    private static boolean exists(IdBitmap bitmap, Long id, Predicate<Long> query) {
+        if (id == null) {
+            return false;
+        }
+        return bitmap.covers(id) ? bitmap.contains(id) : query.test(id);
+    }
+
+    private static Set<Long> findExisting(IdBitmap bitmap, Collection<Long> ids,
+                                          Function<Collection<Long>, Set<Long>> query) {
+        Set<Long> existing = new HashSet<>();
+        List<Long> unknown = new ArrayList<>();
+        for (Long id : ids) {
+            if (id == null) {
+                continue;
+            }
+            if (!bitmap.covers(id)) {
+                unknown.add(id);
+            } else if (bitmap.contains(id)) {
+                existing.add(id);
+            }
+        }
+        if (!unknown.isEmpty()) {
+            existing.addAll(query.apply(unknown));
+        }
+        return existing;
+    }
+}
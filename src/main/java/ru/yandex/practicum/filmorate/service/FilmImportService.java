@@ -0,0 +1,139 @@
+package ru.yandex.practicum.filmorate.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.dal.FilmDbStorage;
+import ru.yandex.practicum.filmorate.dal.RowSink;
+import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
+import ru.yandex.practicum.filmorate.exceptions.ValidationException;
+import ru.yandex.practicum.filmorate.index.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.index.PopularityLeaderboard;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmImportResult;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+@Slf4j
+@Service
+public class FilmImportService {
+    private final FilmDbStorage filmStorage;
+    private final PopularityLeaderboard popularityLeaderboard;
+    private final FilmSearchIndex filmSearchIndex;
+    private final ExistenceService existenceService;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final int chunkSize;
+    private final int batchSize;
+
+    public FilmImportService(FilmDbStorage filmStorage,
+                             PopularityLeaderboard popularityLeaderboard,
+                             FilmSearchIndex filmSearchIndex,
+                             ExistenceService existenceService,
+                             ObjectMapper objectMapper,
+                             Validator validator,
+                             @Value("${filmorate.films.import.chunk-size:5000}") int chunkSize,
+                             @Value("${filmorate.films.import.batch-size:1000}") int batchSize) {
+        this.filmStorage = filmStorage;
+        this.popularityLeaderboard = popularityLeaderboard;
+        this.filmSearchIndex = filmSearchIndex;
+        this.existenceService = existenceService;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.chunkSize = chunkSize;
+        this.batchSize = batchSize;
+    }
+
+    public void importFilms(InputStream body, RowSink<FilmImportResult> sink) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        List<FilmImportResult> results = new ArrayList<>();
+        List<FilmImportResult> pendingResults = new ArrayList<>();
+        List<Film> pendingFilms = new ArrayList<>();
+        int lineNumber = 0;
+        int imported = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            FilmImportResult result = new FilmImportResult(lineNumber, null, null);
+            results.add(result);
+            try {
+                pendingFilms.add(parse(line));
+                pendingResults.add(result);
+            } catch (ValidationException | NotFoundException e) {
+                result.setError(e.getMessage());
+            }
+            if (results.size() >= chunkSize) {
+                imported += flush(pendingFilms, pendingResults);
+                writeResults(results, sink);
+            }
+        }
+        imported += flush(pendingFilms, pendingResults);
+        writeResults(results, sink);
+        log.info("Импорт фильмов завершён: обработано строк {}, добавлено фильмов {}", lineNumber, imported);
+    }
+
+    private Film parse(String line) {
+        Film film;
+        try {
+            film = objectMapper.readValue(line, Film.class);
+        } catch (JsonProcessingException e) {
+            throw new ValidationException("Некорректный JSON: " + e.getOriginalMessage());
+        }
+        Set<ConstraintViolation<Film>> violations = validator.validate(film);
+        if (!violations.isEmpty()) {
+            throw new ValidationException(violations.stream()
+                    .map(ConstraintViolation::getMessage)
+                    .sorted()
+                    .collect(Collectors.joining("; ")));
+        }
+        film.setId(null);
+        return filmStorage.prepareFilm(film);
+    }
+
+    private int flush(List<Film> films, List<FilmImportResult> results) {
+        if (films.isEmpty()) {
+            return 0;
+        }
+        int imported = 0;
+        try {
+            filmStorage.addFilms(films, batchSize);
+            for (int i = 0; i < films.size(); i++) {
+                Film film = films.get(i);
+                results.get(i).setId(film.getId());
+                existenceService.filmAdded(film.getId());
+                popularityLeaderboard.upsertFilm(film);
+                filmSearchIndex.upsertFilm(film);
+            }
+            imported = films.size();
+        } catch (DataAccessException e) {
+            log.error("Не удалось сохранить пакет из {} фильмов: {}", films.size(), e.getMessage());
+            results.forEach(result -> result.setError("Не удалось сохранить пакет фильмов"));
+        }
+        films.clear();
+        results.clear();
+        return imported;
+    }
+
+    private void writeResults(List<FilmImportResult> results, RowSink<FilmImportResult> sink) throws IOException {
+        for (FilmImportResult result : results) {
+            sink.accept(result);
+        }
+        results.clear();
+    }
+}
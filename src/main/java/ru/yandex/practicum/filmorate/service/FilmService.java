@@ -6,12 +6,24 @@ import org.springframework.stereotype.Service;
 import org.springframework.validation.annotation.Validated;
 import ru.yandex.practicum.filmorate.exceptions.*;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmPatch;
+import ru.yandex.practicum.filmorate.model.FilmProjection;
+import ru.yandex.practicum.filmorate.model.Page;
+import ru.yandex.practicum.filmorate.model.Suggestion;
 import ru.yandex.practicum.filmorate.dal.FilmDbStorage;
-import ru.yandex.practicum.filmorate.dal.UserDbStorage;
+import ru.yandex.practicum.filmorate.dal.LikeWriteQueue;
+import ru.yandex.practicum.filmorate.dal.RowSink;
+import ru.yandex.practicum.filmorate.index.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.index.LikeMatrix;
+import ru.yandex.practicum.filmorate.index.PopularityLeaderboard;
 import ru.yandex.practicum.filmorate.model.enums.EventOperation;
 import ru.yandex.practicum.filmorate.model.enums.EventType;
+import ru.yandex.practicum.filmorate.model.enums.SearchMode;
+import ru.yandex.practicum.filmorate.model.enums.SearchType;
+import ru.yandex.practicum.filmorate.model.enums.SortBy;
 
-import java.util.List;
+import java.io.IOException;
+import java.util.*;
 
 @Slf4j
 @Service
@@ -19,44 +31,86 @@ import java.util.List;
 @Validated
 public class FilmService {
     private final FilmDbStorage filmStorage;
-    private final UserDbStorage userStorage;
     private final EventService eventService;
+    private final DirectorService directorService;
+    private final PopularityLeaderboard popularityLeaderboard;
+    private final FilmSearchIndex filmSearchIndex;
+    private final LikeMatrix likeMatrix;
+    private final LikeWriteQueue likeWriteQueue;
+    private final ExistenceService existenceService;
+    private final PageLimits pageLimits;
 
     public List<Film> getFilms() {
         log.info("Получение списка всех фильмов на уровне сервиса");
         return filmStorage.getFilms();
     }
 
+    public void streamFilms(FilmProjection projection, RowSink<Film> sink) throws IOException {
+        log.info("Потоковая выгрузка всех фильмов на уровне сервиса");
+        filmStorage.streamFilms(projection, sink);
+    }
+
+    public Page<Film> getFilmsPage(String cursor, Integer limit, FilmProjection projection) {
+        log.info("Получение страницы фильмов после курсора {} на уровне сервиса", cursor);
+        int pageSize = pageLimits.resolve(limit);
+        long afterId = cursor == null ? 0 : PageCursor.decode(cursor, false).getId();
+        List<Film> films = filmStorage.getFilmsPage(afterId, pageSize + 1, projection);
+        if (films.size() <= pageSize) {
+            return new Page<>(films, null);
+        }
+        List<Film> items = films.subList(0, pageSize);
+        return new Page<>(items, PageCursor.ofId(items.getLast().getId()).encode());
+    }
+
     public Film getFilmById(Long id) {
+        return getFilmById(id, FilmProjection.FULL);
+    }
+
+    public Film getFilmById(Long id, FilmProjection projection) {
         log.info("Получение фильма с ID: {} на уровне сервиса", id);
-        return filmStorage.getFilmById(id);
+        return filmStorage.getFilmById(id, projection);
     }
 
     public Film addFilm(Film film) {
         log.info("Добавление фильма с id {} на уровне сервиса", film.getId());
-        return filmStorage.addFilm(film);
+        Film addedFilm = filmStorage.addFilm(film);
+        existenceService.filmAdded(addedFilm.getId());
+        popularityLeaderboard.upsertFilm(addedFilm);
+        filmSearchIndex.upsertFilm(addedFilm);
+        return addedFilm;
     }
 
     public Film updateFilm(Film film) {
         log.info("Обновление фильма с ID {} на уровне сервиса", film.getId());
-        getFilmById(film.getId());
-        return filmStorage.updateFilm(film);
+        Film updatedFilm = filmStorage.updateFilm(film);
+        popularityLeaderboard.upsertFilm(updatedFilm);
+        filmSearchIndex.upsertFilm(updatedFilm);
+        return updatedFilm;
+    }
+
+    public Film patchFilm(FilmPatch patch) {
+        log.info("Частичное обновление фильма с ID {} на уровне сервиса", patch.getId());
+        Film patchedFilm = filmStorage.patchFilm(patch);
+        popularityLeaderboard.upsertFilm(patchedFilm);
+        filmSearchIndex.upsertFilm(patchedFilm);
+        return patchedFilm;
     }
 
     public void addLike(Long filmId, Long userId) {
         log.info("Добавление лайка фильму с ID {} от пользователя с ID {} на уровне сервиса", filmId, userId);
-        Film film = getFilmById(filmId);
-        userStorage.getUserById(userId);
-        if (film.getLikes().contains(userId)) {
-            eventService.addEvent(
-                    userId,
-                    EventType.LIKE,
-                    EventOperation.ADD,
-                    filmId
-            );
+        checkFilmAndUser(filmId, userId);
+        if (likeWriteQueue.isEnabled()) {
+            likeWriteQueue.submit(filmId, userId, EventOperation.ADD, () -> likeMatrix.hasLike(filmId, userId), () -> {
+                popularityLeaderboard.changeLikes(filmId, 1);
+                likeMatrix.addLike(filmId, userId);
+            });
             return;
         }
-        filmStorage.addLike(filmId, userId);
+        if (!likeMatrix.hasLike(filmId, userId)) {
+            filmStorage.addLike(filmId, userId);
+            popularityLeaderboard.changeLikes(filmId, 1);
+            likeMatrix.addLike(filmId, userId);
+        }
         eventService.addEvent(
                 userId,
                 EventType.LIKE,
@@ -67,13 +121,20 @@ public class FilmService {
 
     public void removeLike(Long filmId, Long userId) {
         log.info("Удаление лайка у фильма с ID {} от пользователя с ID {} на уровне сервиса", filmId, userId);
-        Film film = getFilmById(filmId);
-        userStorage.getUserById(userId);
-
-        if (!film.getLikes().contains(userId)) {
+        checkFilmAndUser(filmId, userId);
+        if (likeWriteQueue.isEnabled()) {
+            likeWriteQueue.submit(filmId, userId, EventOperation.REMOVE, () -> likeMatrix.hasLike(filmId, userId), () -> {
+                popularityLeaderboard.changeLikes(filmId, -1);
+                likeMatrix.removeLike(filmId, userId);
+            });
+            return;
+        }
+        if (!likeMatrix.hasLike(filmId, userId)) {
             throw new NotFoundException("Лайк не найден");
         }
         filmStorage.removeLike(filmId, userId);
+        popularityLeaderboard.changeLikes(filmId, -1);
+        likeMatrix.removeLike(filmId, userId);
         eventService.addEvent(
                 userId,
                 EventType.LIKE,
@@ -82,34 +143,98 @@ public class FilmService {
         );
     }
 
-    public List<Film> getPopularFilms(Integer count, Long genreId, Integer year) {
+    private void checkFilmAndUser(Long filmId, Long userId) {
+        existenceService.requireFilm(filmId);
+        existenceService.requireUser(userId);
+    }
+
+    public List<Film> getPopularFilms(Integer count, Long genreId, Integer year, FilmProjection projection) {
         log.info("Получение популярных фильмов на уровне сервиса");
         if (count != null && count <= 0) {
             throw new ParameterNotValidException("count Должно быть положительным");
         }
-        return filmStorage.getPopularFilms(count, genreId, year);
+        return filmStorage.getFilmsByIds(popularityLeaderboard.getTop(count, genreId, year), projection);
     }
 
-    public List<Film> getDirectorsFilms(Long directorId, String sortBy) {
+    public Page<Film> getPopularFilmsPage(Long genreId, Integer year, String cursor, Integer limit,
+                                          FilmProjection projection) {
+        log.info("Получение страницы популярных фильмов после курсора {} на уровне сервиса", cursor);
+        int pageSize = pageLimits.resolve(limit);
+        PopularityLeaderboard.Rank after = null;
+        if (cursor != null) {
+            PageCursor pageCursor = PageCursor.decode(cursor, true);
+            after = new PopularityLeaderboard.Rank(pageCursor.getId(), pageCursor.getLikes());
+        }
+        List<PopularityLeaderboard.Rank> ranks = popularityLeaderboard.getPage(genreId, year, after, pageSize + 1);
+        String nextCursor = null;
+        if (ranks.size() > pageSize) {
+            ranks = ranks.subList(0, pageSize);
+            PopularityLeaderboard.Rank last = ranks.getLast();
+            nextCursor = PageCursor.ofLikes(last.likes(), last.filmId()).encode();
+        }
+        List<Long> filmIds = ranks.stream()
+                .map(PopularityLeaderboard.Rank::filmId)
+                .toList();
+        return new Page<>(filmStorage.getFilmsByIds(filmIds, projection), nextCursor);
+    }
+
+    public List<Film> getDirectorsFilms(Long directorId, String sortBy, FilmProjection projection) {
         log.info("Получение фильмов режиссёра, отсортированных по {} на уровне сервиса", sortBy);
-        return filmStorage.getDirectorsFilms(directorId, sortBy);
+        if (SortBy.LIKES.name().equalsIgnoreCase(sortBy)) {
+            directorService.getDirectorById(directorId);
+            return filmStorage.getFilmsByIds(popularityLeaderboard.getTopByDirector(directorId), projection);
+        }
+        return filmStorage.getDirectorsFilms(directorId, sortBy, projection);
     }
 
-    public List<Film> getCommonFilms(Long userId, Long friendId) {
-        log.info("Получение общих фильмов у пользователей с ID {} и {} на уровне сервиса", userId, friendId);
-        if (userId == null || friendId == null) {
-            throw new ParameterNotValidException("userId и friendId не могут быть null");
+    public List<Film> getCommonFilms(Long userId, Long friendId, List<Long> userIds, FilmProjection projection) {
+        log.info("Получение общих фильмов у пользователей с ID {}, {} и {} на уровне сервиса", userId, friendId, userIds);
+        Set<Long> ids = new LinkedHashSet<>();
+        if (userIds != null) {
+            ids.addAll(userIds);
+        }
+        if (userId != null) {
+            ids.add(userId);
         }
-        return filmStorage.getCommonFilms(userId, friendId);
+        if (friendId != null) {
+            ids.add(friendId);
+        }
+        if (ids.contains(null) || ids.size() < 2) {
+            throw new ParameterNotValidException("Нужно указать минимум двух разных пользователей: userIds или userId и friendId");
+        }
+        existenceService.requireUsers(ids);
+        List<Long> common = Arrays.stream(likeMatrix.getCommonFilms(ids)).boxed().toList();
+        return filmStorage.getFilmsByIds(popularityLeaderboard.sortByPopularity(common), projection);
     }
 
     public void deleteFilmById(Long id) {
         log.info("Удаления фильма с id {} на уровне сервиса", id);
+        likeWriteQueue.discardFilm(id);
         filmStorage.deleteFilmById(id);
+        existenceService.filmRemoved(id);
+        popularityLeaderboard.removeFilm(id);
+        filmSearchIndex.removeFilm(id);
+        likeMatrix.removeFilm(id);
     }
 
-    public List<Film> searchFilms(String query, String[] by) {
+    public List<Film> searchFilms(String query, String[] by, String mode, FilmProjection projection) {
         log.info("Получение фильмов с подстрокой {} в {} на уровне сервиса", query, by);
-        return filmStorage.searchFilms(query, by);
+        SearchType searchType = SearchType.from(by);
+        List<Long> filmIds = switch (SearchMode.from(mode)) {
+            case EXACT -> filmSearchIndex.search(query, searchType);
+            case FUZZY -> filmSearchIndex.searchFuzzy(query, searchType);
+        };
+        return filmStorage.getFilmsByIds(filmIds, projection);
+    }
+
+    public List<Suggestion> suggest(String prefix, int count) {
+        log.info("Получение подсказок по префиксу {} на уровне сервиса", prefix);
+        if (prefix == null || prefix.isBlank()) {
+            throw new ParameterNotValidException("Параметр prefix не может быть пустым");
+        }
+        if (count < 1 || count > FilmSearchIndex.MAX_SUGGESTIONS) {
+            throw new ParameterNotValidException("Параметр count должен быть от 1 до " + FilmSearchIndex.MAX_SUGGESTIONS);
+        }
+        return filmSearchIndex.suggest(prefix, count);
     }
 }
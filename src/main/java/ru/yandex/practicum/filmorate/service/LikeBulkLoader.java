@@ -0,0 +1,44 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+@Slf4j
+@Component
+public class LikeBulkLoader implements ApplicationRunner {
+    private final LikeImportService likeImportService;
+    private final String file;
+    private final boolean emitEvents;
+
+    public LikeBulkLoader(LikeImportService likeImportService,
+                          @Value("${filmorate.likes.bulk-load.file:}") String file,
+                          @Value("${filmorate.likes.bulk-load.events:false}") boolean emitEvents) {
+        this.likeImportService = likeImportService;
+        this.file = file;
+        this.emitEvents = emitEvents;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws IOException {
+        if (file.isBlank()) {
+            return;
+        }
+        Path path = Path.of(file);
+        log.info("Загрузка лайков из файла {}", path);
+        try (InputStream input = Files.newInputStream(path)) {
+            likeImportService.importLikes(input, emitEvents, false, result -> {
+                log.info("Пакет {}: получено {}, добавлено {}, дубликатов {}, отклонено {}",
+                        result.getBatch(), result.getReceived(), result.getInserted(),
+                        result.getDuplicates(), result.getRejectedLines().size());
+            });
+        }
+    }
+}
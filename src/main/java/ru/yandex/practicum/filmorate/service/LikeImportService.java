@@ -0,0 +1,171 @@
+package ru.yandex.practicum.filmorate.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.dal.EventRepository;
+import ru.yandex.practicum.filmorate.dal.FilmDbStorage;
+import ru.yandex.practicum.filmorate.dal.RowSink;
+import ru.yandex.practicum.filmorate.index.LikeMatrix;
+import ru.yandex.practicum.filmorate.index.PopularityLeaderboard;
+import ru.yandex.practicum.filmorate.model.Event;
+import ru.yandex.practicum.filmorate.model.LikeImportResult;
+import ru.yandex.practicum.filmorate.model.enums.EventOperation;
+import ru.yandex.practicum.filmorate.model.enums.EventType;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+@Slf4j
+@Service
+public class LikeImportService {
+    private final FilmDbStorage filmStorage;
+    private final ExistenceService existenceService;
+    private final EventRepository eventRepository;
+    private final PopularityLeaderboard popularityLeaderboard;
+    private final LikeMatrix likeMatrix;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+
+    public LikeImportService(FilmDbStorage filmStorage,
+                             ExistenceService existenceService,
+                             EventRepository eventRepository,
+                             PopularityLeaderboard popularityLeaderboard,
+                             LikeMatrix likeMatrix,
+                             ObjectMapper objectMapper,
+                             TransactionTemplate transactionTemplate,
+                             @Value("${filmorate.likes.import.batch-size:5000}") int batchSize) {
+        this.filmStorage = filmStorage;
+        this.existenceService = existenceService;
+        this.eventRepository = eventRepository;
+        this.popularityLeaderboard = popularityLeaderboard;
+        this.likeMatrix = likeMatrix;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+    }
+
+    public void importLikes(InputStream input, boolean emitEvents, boolean updateIndexes,
+                            RowSink<LikeImportResult> sink) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        List<ImportedLike> likes = new ArrayList<>();
+        List<Integer> rejectedLines = new ArrayList<>();
+        int lineNumber = 0;
+        int batchNumber = 0;
+        int inserted = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            ImportedLike like = parse(line, lineNumber);
+            if (like == null) {
+                rejectedLines.add(lineNumber);
+            } else {
+                likes.add(like);
+            }
+            if (likes.size() + rejectedLines.size() >= batchSize) {
+                LikeImportResult result = flush(++batchNumber, likes, rejectedLines, emitEvents, updateIndexes);
+                inserted += result.getInserted();
+                sink.accept(result);
+            }
+        }
+        if (!likes.isEmpty() || !rejectedLines.isEmpty()) {
+            LikeImportResult result = flush(++batchNumber, likes, rejectedLines, emitEvents, updateIndexes);
+            inserted += result.getInserted();
+            sink.accept(result);
+        }
+        log.info("Импорт лайков завершён: обработано строк {}, добавлено лайков {}", lineNumber, inserted);
+    }
+
+    private ImportedLike parse(String line, int lineNumber) {
+        try {
+            JsonNode node = objectMapper.readTree(line);
+            JsonNode userId = node.path("userId");
+            JsonNode filmId = node.path("filmId");
+            JsonNode timestamp = node.path("timestamp");
+            if (!userId.canConvertToLong() || !filmId.canConvertToLong()
+                    || !timestamp.isMissingNode() && !timestamp.canConvertToLong()) {
+                return null;
+            }
+            return new ImportedLike(lineNumber, filmId.asLong(), userId.asLong(),
+                    timestamp.isMissingNode() ? System.currentTimeMillis() : timestamp.asLong());
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+    }
+
+    private LikeImportResult flush(int batchNumber, List<ImportedLike> likes, List<Integer> rejectedLines,
+                                   boolean emitEvents, boolean updateIndexes) {
+        int received = likes.size() + rejectedLines.size();
+        Set<Long> users = existenceService.findExistingUsers(likes.stream().map(ImportedLike::userId).distinct().toList());
+        Set<Long> films = existenceService.findExistingFilms(likes.stream().map(ImportedLike::filmId).distinct().toList());
+
+        Map<List<Long>, ImportedLike> unique = new LinkedHashMap<>();
+        int duplicates = 0;
+        for (ImportedLike like : likes) {
+            if (!users.contains(like.userId()) || !films.contains(like.filmId())) {
+                rejectedLines.add(like.line());
+            } else if (unique.putIfAbsent(List.of(like.filmId(), like.userId()), like) != null) {
+                duplicates++;
+            }
+        }
+
+        List<long[]> added = List.of();
+        try {
+            added = transactionTemplate.execute(status -> {
+                List<long[]> newLikes = filmStorage.filterNewLikes(unique.values().stream()
+                        .map(like -> new long[]{like.filmId(), like.userId()})
+                        .toList());
+                filmStorage.applyLikeChanges(newLikes, List.of());
+                if (emitEvents) {
+                    eventRepository.addEvents(events(newLikes, unique));
+                }
+                return newLikes;
+            });
+            duplicates += unique.size() - added.size();
+        } catch (DataAccessException e) {
+            log.error("Не удалось сохранить пакет лайков {}: {}", batchNumber, e.getMessage());
+            unique.values().forEach(like -> rejectedLines.add(like.line()));
+        }
+
+        if (updateIndexes && !added.isEmpty()) {
+            Map<Long, Integer> deltas = new HashMap<>();
+            added.forEach(like -> deltas.merge(like[0], 1, Integer::sum));
+            popularityLeaderboard.changeLikes(deltas);
+            likeMatrix.addLikes(added);
+        }
+
+        Collections.sort(rejectedLines);
+        LikeImportResult result = new LikeImportResult(batchNumber, received, added.size(), duplicates,
+                List.copyOf(rejectedLines));
+        log.debug("Пакет лайков {}: {}", batchNumber, result);
+        likes.clear();
+        rejectedLines.clear();
+        return result;
+    }
+
+    private static List<Event> events(List<long[]> newLikes, Map<List<Long>, ImportedLike> likes) {
+        List<Event> events = new ArrayList<>(newLikes.size());
+        for (long[] like : newLikes) {
+            ImportedLike imported = likes.get(List.of(like[0], like[1]));
+            events.add(new Event(null, imported.timestamp(), imported.userId(), EventType.LIKE,
+                    EventOperation.ADD, imported.filmId()));
+        }
+        return events;
+    }
+
+    private record ImportedLike(int line, long filmId, long userId, long timestamp) {
+    }
+}
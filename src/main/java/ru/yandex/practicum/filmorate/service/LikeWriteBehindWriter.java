@@ -0,0 +1,129 @@
+package ru.yandex.practicum.filmorate.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.dal.EventRepository;
+import ru.yandex.practicum.filmorate.dal.FilmDbStorage;
+import ru.yandex.practicum.filmorate.dal.LikeWriteQueue;
+import ru.yandex.practicum.filmorate.index.LikeMatrix;
+import ru.yandex.practicum.filmorate.index.PopularityLeaderboard;
+import ru.yandex.practicum.filmorate.model.Event;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class LikeWriteBehindWriter {
+    private final LikeWriteQueue likeWriteQueue;
+    private final FilmDbStorage filmStorage;
+    private final EventRepository eventRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final PopularityLeaderboard popularityLeaderboard;
+    private final LikeMatrix likeMatrix;
+
+    private Thread writer;
+
+    @PostConstruct
+    void start() {
+        if (!likeWriteQueue.isEnabled()) {
+            return;
+        }
+        writer = new Thread(this::run, "like-writer");
+        writer.start();
+        log.info("Запущена отложенная запись лайков");
+    }
+
+    @PreDestroy
+    void drain() throws InterruptedException {
+        if (writer == null) {
+            return;
+        }
+        log.info("Остановка отложенной записи лайков, сброс очереди");
+        likeWriteQueue.close();
+        writer.join();
+        log.info("Очередь лайков сброшена");
+    }
+
+    private void run() {
+        while (true) {
+            LikeWriteQueue.Batch batch;
+            try {
+                batch = likeWriteQueue.take();
+            } catch (InterruptedException e) {
+                log.warn("Поток записи лайков прерван");
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (batch == null) {
+                return;
+            }
+            likeWriteQueue.complete(batch, write(batch), this::restore);
+        }
+    }
+
+    private void restore(long filmId, long userId, boolean liked) {
+        log.warn("Лайк фильма {} пользователем {} не записан, состояние в памяти возвращено к сохранённому", filmId, userId);
+        if (liked) {
+            popularityLeaderboard.changeLikes(filmId, 1);
+            likeMatrix.addLike(filmId, userId);
+        } else {
+            popularityLeaderboard.changeLikes(filmId, -1);
+            likeMatrix.removeLike(filmId, userId);
+        }
+    }
+
+    private List<long[]> write(LikeWriteQueue.Batch batch) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                filmStorage.applyLikeChanges(batch.added(), batch.removed());
+                eventRepository.addEvents(batch.events());
+            });
+            log.debug("Записан пакет лайков: добавлено {}, удалено {}, событий {}",
+                    batch.added().size(), batch.removed().size(), batch.events().size());
+            return List.of();
+        } catch (RuntimeException e) {
+            log.error("Не удалось записать пакет лайков, запись по одной операции: {}", e.getMessage());
+            return writeOneByOne(batch);
+        }
+    }
+
+    private List<long[]> writeOneByOne(LikeWriteQueue.Batch batch) {
+        List<long[]> dropped = new ArrayList<>();
+        for (long[] like : batch.added()) {
+            tryWrite(() -> filmStorage.applyLikeChanges(List.of(like), List.of()), "лайк", like, dropped);
+        }
+        for (long[] like : batch.removed()) {
+            tryWrite(() -> filmStorage.applyLikeChanges(List.of(), List.of(like)), "удаление лайка", like, dropped);
+        }
+        Set<List<Long>> droppedPairs = new HashSet<>();
+        dropped.forEach(like -> droppedPairs.add(List.of(like[0], like[1])));
+        for (Event event : batch.events()) {
+            if (droppedPairs.contains(List.of(event.getEntityId(), event.getUserId()))) {
+                continue;
+            }
+            try {
+                eventRepository.addEvents(List.of(event));
+            } catch (RuntimeException e) {
+                log.error("Событие {} отброшено: {}", event, e.getMessage());
+            }
+        }
+        return dropped;
+    }
+
+    private void tryWrite(Runnable write, String operation, long[] like, List<long[]> dropped) {
+        try {
+            write.run();
+        } catch (RuntimeException e) {
+            dropped.add(like);
+            log.error("Операция \"{}\" фильма {} пользователем {} отброшена: {}", operation, like[0], like[1], e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.dal.FilmDbStorage;
+import ru.yandex.practicum.filmorate.dal.LikeWriteQueue;
+import ru.yandex.practicum.filmorate.index.PopularityLeaderboard;
+import ru.yandex.practicum.filmorate.model.LikesCountDrift;
+
+import java.util.List;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class LikesCountReconciliationService {
+    private final FilmDbStorage filmStorage;
+    private final PopularityLeaderboard popularityLeaderboard;
+    private final LikeWriteQueue likeWriteQueue;
+
+    @Scheduled(initialDelayString = "${filmorate.likes.reconcile-interval:PT1H}",
+            fixedDelayString = "${filmorate.likes.reconcile-interval:PT1H}")
+    public List<LikesCountDrift> reconcile() {
+        log.info("Сверка счётчиков лайков с таблицей likes");
+        List<LikesCountDrift> drift = filmStorage.findLikesCountDrift();
+        if (drift.isEmpty()) {
+            log.info("Расхождений в счётчиках лайков не найдено");
+        } else {
+            for (LikesCountDrift filmDrift : drift) {
+                log.warn("Счётчик лайков фильма {} расходится: сохранено {}, фактически {}",
+                        filmDrift.getFilmId(), filmDrift.getStoredCount(), filmDrift.getActualCount());
+                filmStorage.recalculateLikesCount(filmDrift.getFilmId());
+            }
+            log.warn("Исправлены счётчики лайков у {} фильмов", drift.size());
+        }
+        if (!likeWriteQueue.isIdle()) {
+            log.info("В очереди есть незаписанные лайки, сверка рейтинга популярности пропущена");
+            return drift;
+        }
+        if (!drift.isEmpty() || !popularityLeaderboard.checkConsistency(null, null, null)) {
+            popularityLeaderboard.rebuild();
+        }
+        return drift;
+    }
+}
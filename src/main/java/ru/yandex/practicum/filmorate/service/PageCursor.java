@@ -0,0 +1,46 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import ru.yandex.practicum.filmorate.exceptions.ParameterNotValidException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+@Getter
+@RequiredArgsConstructor
+public class PageCursor {
+    private static final String SEPARATOR = ":";
+
+    private final Integer likes;
+    private final long id;
+
+    public static PageCursor ofId(long id) {
+        return new PageCursor(null, id);
+    }
+
+    public static PageCursor ofLikes(int likes, long id) {
+        return new PageCursor(likes, id);
+    }
+
+    public static PageCursor decode(String cursor, boolean withLikes) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = decoded.split(SEPARATOR);
+            if (withLikes && parts.length == 2) {
+                return ofLikes(Integer.parseInt(parts[0]), Long.parseLong(parts[1]));
+            }
+            if (!withLikes && parts.length == 1) {
+                return ofId(Long.parseLong(parts[0]));
+            }
+        } catch (IllegalArgumentException e) {
+            throw new ParameterNotValidException("Некорректный курсор страницы");
+        }
+        throw new ParameterNotValidException("Некорректный курсор страницы");
+    }
+
+    public String encode() {
+        String raw = likes == null ? String.valueOf(id) : likes + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
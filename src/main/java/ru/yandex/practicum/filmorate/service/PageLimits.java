@@ -0,0 +1,27 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exceptions.ParameterNotValidException;
+
+@Component
+public class PageLimits {
+    private final int defaultPageSize;
+    private final int maxPageSize;
+
+    public PageLimits(@Value("${filmorate.pagination.default-page-size:100}") int defaultPageSize,
+                      @Value("${filmorate.pagination.max-page-size:1000}") int maxPageSize) {
+        this.defaultPageSize = defaultPageSize;
+        this.maxPageSize = maxPageSize;
+    }
+
+    public int resolve(Integer limit) {
+        if (limit == null) {
+            return Math.min(defaultPageSize, maxPageSize);
+        }
+        if (limit <= 0) {
+            throw new ParameterNotValidException("limit Должно быть положительным");
+        }
+        return Math.min(limit, maxPageSize);
+    }
+}
@@ -0,0 +1,185 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.cache.BoundedCache;
+import ru.yandex.practicum.filmorate.cache.CacheRegistry;
+import ru.yandex.practicum.filmorate.exceptions.ParameterNotValidException;
+import ru.yandex.practicum.filmorate.index.FilmCoOccurrence;
+import ru.yandex.practicum.filmorate.index.LikeMatrix;
+import ru.yandex.practicum.filmorate.index.LikeMatrixListener;
+import ru.yandex.practicum.filmorate.index.RecommendationStrategy;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+@Slf4j
+@Service
+public class RecommendationService implements LikeMatrixListener {
+    private final Map<String, RecommendationStrategy> strategies;
+    private final LikeMatrix likeMatrix;
+    private final String defaultStrategy;
+    private final int defaultSize;
+    private final BoundedCache<RecommendationKey, CachedRecommendation> cache;
+
+    private final Map<Long, Set<Dependencies>> keysByUser = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Dependencies>> keysByFilm = new ConcurrentHashMap<>();
+
+    public RecommendationService(List<RecommendationStrategy> strategies,
+                                 LikeMatrix likeMatrix,
+                                 FilmCoOccurrence filmCoOccurrence,
+                                 CacheRegistry cacheRegistry,
+                                 @Value("${filmorate.recommendations.strategy:item-knn}") String defaultStrategy,
+                                 @Value("${filmorate.recommendations.default-size:10}") int defaultSize,
+                                 @Value("${filmorate.recommendations.cache.max-weight:100000}") long cacheMaxWeight) {
+        this.strategies = strategies.stream()
+                .collect(Collectors.toMap(RecommendationStrategy::getName, Function.identity()));
+        this.likeMatrix = likeMatrix;
+        this.defaultStrategy = defaultStrategy;
+        this.defaultSize = defaultSize;
+        if (!this.strategies.containsKey(defaultStrategy)) {
+            throw new IllegalStateException("Неизвестная стратегия рекомендаций по умолчанию: " + defaultStrategy);
+        }
+        this.cache = cacheRegistry.register("recommendations", new BoundedCache<>(cacheMaxWeight,
+                (key, value) -> value.films().size() + value.dependencies().filmIds.length + 1,
+                (key, value) -> forget(value.dependencies()),
+                (key, value) -> remember(value.dependencies())));
+        likeMatrix.addListener(this);
+        filmCoOccurrence.addAppliedListener(this);
+    }
+
+    public List<Long> recommend(Long userId, String strategy, Integer size) {
+        if (size != null && size <= 0) {
+            throw new ParameterNotValidException("size Должно быть положительным");
+        }
+        String name = strategy == null ? defaultStrategy : strategy.toLowerCase();
+        RecommendationStrategy recommendationStrategy = strategies.get(name);
+        if (recommendationStrategy == null) {
+            throw new ParameterNotValidException("Параметр strategy может быть только: " + String.join(", ", strategies.keySet()));
+        }
+        RecommendationKey key = new RecommendationKey(userId, name, recommendationStrategy.getModelVersion(),
+                size == null ? defaultSize : size);
+        Dependencies[] loading = new Dependencies[1];
+        try {
+            return cache.get(key, k -> compute(k, recommendationStrategy, loading)).films();
+        } finally {
+            if (loading[0] != null) {
+                forget(loading[0]);
+            }
+        }
+    }
+
+    public void invalidateUser(long userId) {
+        invalidateKeys(keysByUser, userId);
+    }
+
+    @Override
+    public void likeAdded(long filmId, long userId, long[] userFilms) {
+        invalidateLikeChange(filmId, userId, userFilms);
+    }
+
+    @Override
+    public void likeRemoved(long filmId, long userId, long[] userFilms) {
+        invalidateLikeChange(filmId, userId, userFilms);
+    }
+
+    @Override
+    public void userRemoved(long userId, long[] userFilms) {
+        invalidateUser(userId);
+        invalidateFilms(userFilms);
+    }
+
+    @Override
+    public void filmRemoved(long filmId, long[] filmUsers) {
+        invalidateKeys(keysByFilm, filmId);
+        for (long userId : filmUsers) {
+            invalidateUser(userId);
+        }
+    }
+
+    private CachedRecommendation compute(RecommendationKey key, RecommendationStrategy strategy,
+                                         Dependencies[] loading) {
+        long[] likedFilms = likeMatrix.getUserFilms(key.userId());
+        loading[0] = new Dependencies(key, likedFilms);
+        remember(loading[0]);
+        log.debug("Рекомендации для пользователя {} по стратегии {}", key.userId(), key.strategy());
+        List<Long> films = strategy.recommend(key.userId(), key.size());
+        long[] filmIds = LongStream.concat(Arrays.stream(likedFilms), films.stream().mapToLong(Long::longValue))
+                .distinct()
+                .toArray();
+        return new CachedRecommendation(films, new Dependencies(key, filmIds));
+    }
+
+    private void invalidateLikeChange(long filmId, long userId, long[] userFilms) {
+        invalidateUser(userId);
+        invalidateKeys(keysByFilm, filmId);
+        invalidateFilms(userFilms);
+    }
+
+    private void invalidateFilms(long[] filmIds) {
+        for (long filmId : filmIds) {
+            invalidateKeys(keysByFilm, filmId);
+        }
+    }
+
+    private void invalidateKeys(Map<Long, Set<Dependencies>> index, long id) {
+        List<Dependencies> registered = new ArrayList<>();
+        index.computeIfPresent(id, (ignored, current) -> {
+            registered.addAll(current);
+            return current;
+        });
+        for (Dependencies dependencies : registered) {
+            forget(dependencies);
+            cache.invalidate(dependencies.key);
+        }
+    }
+
+    private void remember(Dependencies dependencies) {
+        addKey(keysByUser, dependencies.key.userId(), dependencies);
+        for (long filmId : dependencies.filmIds) {
+            addKey(keysByFilm, filmId, dependencies);
+        }
+    }
+
+    private void forget(Dependencies dependencies) {
+        removeKey(keysByUser, dependencies.key.userId(), dependencies);
+        for (long filmId : dependencies.filmIds) {
+            removeKey(keysByFilm, filmId, dependencies);
+        }
+    }
+
+    private static void addKey(Map<Long, Set<Dependencies>> index, long id, Dependencies key) {
+        index.compute(id, (ignored, keys) -> {
+            Set<Dependencies> result = keys == null ? new HashSet<>() : keys;
+            result.add(key);
+            return result;
+        });
+    }
+
+    private static void removeKey(Map<Long, Set<Dependencies>> index, long id, Dependencies key) {
+        index.computeIfPresent(id, (ignored, keys) -> {
+            keys.remove(key);
+            return keys.isEmpty() ? null : keys;
+        });
+    }
+
+    private record RecommendationKey(long userId, String strategy, long modelVersion, int size) {
+    }
+
+    private record CachedRecommendation(List<Long> films, Dependencies dependencies) {
+    }
+
+    private static final class Dependencies {
+        private final RecommendationKey key;
+        private final long[] filmIds;
+
+        private Dependencies(RecommendationKey key, long[] filmIds) {
+            this.key = key;
+            this.filmIds = filmIds;
+        }
+    }
+}
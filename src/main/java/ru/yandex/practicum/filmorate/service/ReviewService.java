@@ -4,8 +4,6 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import ru.yandex.practicum.filmorate.dal.FilmDbStorage;
-import ru.yandex.practicum.filmorate.dal.UserDbStorage;
 import ru.yandex.practicum.filmorate.model.Review;
 import ru.yandex.practicum.filmorate.model.enums.EventOperation;
 import ru.yandex.practicum.filmorate.model.enums.EventType;
@@ -18,8 +16,7 @@ import java.util.List;
 @Service
 public class ReviewService {
     private final ReviewStorage reviewStorage;
-    private final FilmDbStorage filmDbStorage;
-    private final UserDbStorage userDbStorage;
+    private final ExistenceService existenceService;
     private final EventService eventService;
 
     @Transactional
@@ -85,7 +82,7 @@ public class ReviewService {
     @Transactional
     public void setLikeOrDislike(long reviewId, long userId, boolean isPositive) {
         log.info("Лайк на отзыв с ID {} пользователем с ID {} на уровне сервиса", reviewId, userId);
-        userDbStorage.getUserById(userId);
+        existenceService.requireUser(userId);
         reviewStorage.getReviewById(reviewId);
 
         boolean success = reviewStorage.setLikeOrDislike(reviewId, userId, isPositive);
@@ -97,7 +94,7 @@ public class ReviewService {
     @Transactional
     public void removeLikeOrDislike(long reviewId, long userId) {
         log.info("Попытка удалить лайк/дизлайк к отзыву {} пользователем {} на уровне сервиса", reviewId, userId);
-        userDbStorage.getUserById(userId);
+        existenceService.requireUser(userId);
         reviewStorage.getReviewById(reviewId);
 
         boolean success = reviewStorage.removeLikeOrDislike(reviewId, userId);
@@ -108,8 +105,8 @@ public class ReviewService {
 
 
     private void validateUserAndFilmExist(long userId, long filmId) {
-        userDbStorage.getUserById(userId);
-        filmDbStorage.getFilmById(filmId);
+        existenceService.requireUser(userId);
+        existenceService.requireFilm(filmId);
     }
 
 }
\ No newline at end of file
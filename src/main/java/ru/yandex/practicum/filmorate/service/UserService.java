@@ -6,12 +6,27 @@ import org.springframework.stereotype.Service;
 import org.springframework.validation.annotation.Validated;
 import ru.yandex.practicum.filmorate.exceptions.*;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmProjection;
+import ru.yandex.practicum.filmorate.model.FriendSuggestion;
+import ru.yandex.practicum.filmorate.model.Page;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.dal.FilmDbStorage;
+import ru.yandex.practicum.filmorate.dal.LikeWriteQueue;
+import ru.yandex.practicum.filmorate.dal.RowSink;
 import ru.yandex.practicum.filmorate.dal.UserDbStorage;
+import ru.yandex.practicum.filmorate.index.FriendCandidate;
+import ru.yandex.practicum.filmorate.index.FriendGraph;
+import ru.yandex.practicum.filmorate.index.LikeMatrix;
+import ru.yandex.practicum.filmorate.index.PopularityLeaderboard;
 import ru.yandex.practicum.filmorate.model.enums.EventOperation;
 import ru.yandex.practicum.filmorate.model.enums.EventType;
 
+import java.io.IOException;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Service
@@ -19,13 +34,38 @@ import java.util.List;
 @Validated
 public class UserService {
     private final UserDbStorage userStorage;
+    private final FilmDbStorage filmStorage;
     private final EventService eventService;
+    private final PopularityLeaderboard popularityLeaderboard;
+    private final LikeMatrix likeMatrix;
+    private final LikeWriteQueue likeWriteQueue;
+    private final ExistenceService existenceService;
+    private final FriendGraph friendGraph;
+    private final RecommendationService recommendationService;
+    private final PageLimits pageLimits;
 
     public List<User> getUsers() {
         log.info("Получение списка всех пользователей на уровне сервиса");
         return userStorage.getUsers();
     }
 
+    public void streamUsers(RowSink<User> sink) throws IOException {
+        log.info("Потоковая выгрузка всех пользователей на уровне сервиса");
+        userStorage.streamUsers(sink);
+    }
+
+    public Page<User> getUsersPage(String cursor, Integer limit) {
+        log.info("Получение страницы пользователей после курсора {} на уровне сервиса", cursor);
+        int pageSize = pageLimits.resolve(limit);
+        long afterId = cursor == null ? 0 : PageCursor.decode(cursor, false).getId();
+        List<User> users = userStorage.getUsersPage(afterId, pageSize + 1);
+        if (users.size() <= pageSize) {
+            return new Page<>(users, null);
+        }
+        List<User> items = users.subList(0, pageSize);
+        return new Page<>(items, PageCursor.ofId(items.getLast().getId()).encode());
+    }
+
     public User getUserById(Long id) {
         log.info("Получение пользователя с ID: {} на уровне сервиса", id);
         return userStorage.getUserById(id);
@@ -37,7 +77,9 @@ public class UserService {
             user.setName(user.getLogin());
             log.debug("Для пользователя {} установлено имя из логина", user.getEmail());
         }
-        return userStorage.addUser(user);
+        User addedUser = userStorage.addUser(user);
+        existenceService.userAdded(addedUser.getId());
+        return addedUser;
     }
 
     public User updateUser(User user) {
@@ -47,15 +89,15 @@ public class UserService {
 
     public void addFriend(Long userId, Long friendId) {
         log.info("Пользователь {} добавляет в друзья пользователя {} на уровне сервиса", userId, friendId);
-        User user = getUserById(userId);
-        User friend = getUserById(friendId);
+        existenceService.requireUsers(List.of(userId, friendId));
 
-        if (user.getFriends().get(friendId) == User.FriendshipStatus.CONFIRMED) {
+        if (friendGraph.getFriendshipStatus(userId, friendId).orElse(null) == User.FriendshipStatus.CONFIRMED) {
             String error = String.format("Пользователь %d уже есть в друзьях у пользователя %d", friendId, userId);
             log.error(error);
             throw new ValidationException(error);
         }
         userStorage.addFriend(userId, friendId);
+        friendGraph.addFriend(userId, friendId);
         eventService.addEvent(
                 userId,
                 EventType.FRIEND,
@@ -67,8 +109,9 @@ public class UserService {
 
     public void removeFriend(Long userId, Long friendId) {
         log.info("Пользователь {} удаляет из друзей пользователя {} на уровне сервиса", userId, friendId);
-        User user = getUserById(userId);
+        existenceService.requireUsers(List.of(userId, friendId));
         userStorage.removeFriend(userId, friendId);
+        friendGraph.removeFriend(userId, friendId);
         eventService.addEvent(
                 userId,
                 EventType.FRIEND,
@@ -80,21 +123,54 @@ public class UserService {
 
     public List<User> getFriends(Long userId) {
         log.info("Получение списка друзей пользователя {} на уровне сервиса", userId);
-        return userStorage.getFriends(userId);
+        existenceService.requireUser(userId);
+        return withFriendships(userStorage.getUsersByIds(friendGraph.getFriendIds(userId)));
     }
 
     public List<User> getCommonFriends(Long userId, Long otherId) {
         log.info("Поиск общих друзей пользователей {} и {} на уровне сервиса", userId, otherId);
-        return userStorage.getCommonFriends(userId, otherId);
+        existenceService.requireUsers(List.of(userId, otherId));
+        return withFriendships(userStorage.getUsersByIds(friendGraph.getCommonFriendIds(userId, otherId)));
+    }
+
+    public List<FriendSuggestion> getFriendSuggestions(Long userId, int count) {
+        log.info("Получение предложений друзей для пользователя {} на уровне сервиса", userId);
+        if (count < 1 || count > FriendGraph.MAX_SUGGESTIONS) {
+            throw new ParameterNotValidException("Параметр count должен быть от 1 до " + FriendGraph.MAX_SUGGESTIONS);
+        }
+        existenceService.requireUser(userId);
+        List<FriendCandidate> candidates = friendGraph.suggestFriends(userId, count);
+        Map<Long, User> usersById = withFriendships(userStorage.getUsersByIds(candidates.stream()
+                .mapToLong(FriendCandidate::userId)
+                .toArray()))
+                .stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+        return candidates.stream()
+                .filter(candidate -> usersById.containsKey(candidate.userId()))
+                .map(candidate -> new FriendSuggestion(usersById.get(candidate.userId()), candidate.mutualFriends()))
+                .toList();
     }
 
     public void deleteUserById(Long id) {
         log.info("Удаления пользователя с id {} на уровне сервиса", id);
+        likeWriteQueue.discardUser(id);
+        long[] likedFilmIds = likeMatrix.getUserFilms(id);
         userStorage.deleteUserById(id);
+        existenceService.userRemoved(id);
+        Arrays.stream(likedFilmIds).forEach(filmId -> popularityLeaderboard.changeLikes(filmId, -1));
+        likeMatrix.removeUser(id);
+        friendGraph.removeUser(id);
+        recommendationService.invalidateUser(id);
     }
 
-    public List<Film> showRecommendations(Long userId) {
+    public List<Film> showRecommendations(Long userId, String strategy, Integer size, FilmProjection projection) {
         log.info("Показ рекомендаций фильмов для пользователя {} на уровне сервиса", userId);
-        return userStorage.showRecommendations(userId);
+        existenceService.requireUser(userId);
+        return filmStorage.getFilmsByIds(recommendationService.recommend(userId, strategy, size), projection);
+    }
+
+    private List<User> withFriendships(List<User> users) {
+        users.forEach(user -> user.setFriends(friendGraph.getFriendships(user.getId())));
+        return users;
     }
 }
\ No newline at end of file
@@ -34,6 +34,9 @@ CREATE TABLE IF NOT EXISTS films (
     rating_id BIGINT REFERENCES ratings(rating_id) ON DELETE CASCADE
 );
 
+ALTER TABLE films ADD COLUMN IF NOT EXISTS likes_count INT NOT NULL DEFAULT 0;
+ALTER TABLE films ADD COLUMN IF NOT EXISTS release_year INT GENERATED ALWAYS AS (EXTRACT(YEAR FROM release_date));
+
 
 CREATE TABLE IF NOT EXISTS film_genres (
     film_id BIGINT REFERENCES films(film_id) ON DELETE CASCADE,
@@ -41,12 +44,16 @@ CREATE TABLE IF NOT EXISTS film_genres (
     PRIMARY KEY (film_id, genre_id)
 );
 
+CREATE INDEX IF NOT EXISTS film_genres_genre_idx ON film_genres (genre_id);
+
 CREATE TABLE IF NOT EXISTS film_directors (
     film_id BIGINT REFERENCES films(film_id) ON DELETE CASCADE,
     director_id BIGINT REFERENCES directors(director_id) ON DELETE CASCADE,
     PRIMARY KEY (film_id, director_id)
 );
 
+CREATE INDEX IF NOT EXISTS film_directors_director_idx ON film_directors (director_id);
+
 
 
 CREATE TABLE IF NOT EXISTS likes (
@@ -55,6 +62,20 @@ CREATE TABLE IF NOT EXISTS likes (
     PRIMARY KEY (film_id, user_id)
 );
 
+CREATE INDEX IF NOT EXISTS likes_user_idx ON likes (user_id);
+
+CREATE TABLE IF NOT EXISTS schema_migrations (
+    name VARCHAR(100) PRIMARY KEY
+);
+
+UPDATE films SET likes_count = (SELECT COUNT(*) FROM likes l WHERE l.film_id = films.film_id)
+WHERE NOT EXISTS (SELECT 1 FROM schema_migrations WHERE name = 'films_likes_count');
+
+MERGE INTO schema_migrations KEY (name) VALUES ('films_likes_count');
+
+CREATE INDEX IF NOT EXISTS films_likes_count_idx ON films (likes_count DESC, film_id);
+CREATE INDEX IF NOT EXISTS films_release_year_idx ON films (release_year, likes_count DESC, film_id);
+
 
 CREATE TABLE IF NOT EXISTS friends (
     user_id BIGINT REFERENCES users(user_id) ON DELETE CASCADE,
@@ -0,0 +1,133 @@
+package ru.yandex.practicum.filmorate.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BoundedCacheTest {
+    private final List<String> removed = new ArrayList<>();
+    private final BoundedCache<String, String> cache =
+            new BoundedCache<>(10, (key, value) -> value.length(), (key, value) -> removed.add(key));
+
+    @Test
+    void evictsLeastRecentlyUsedWhenOverWeight() {
+        cache.get("a", key -> "aaaa");
+        cache.get("b", key -> "bbbb");
+        cache.get("a", key -> "never");
+        cache.get("c", key -> "cccc");
+
+        assertThat(removed).containsExactly("b");
+        assertThat(cache.get("a", key -> "reloaded")).isEqualTo("aaaa");
+        CacheStats stats = cache.stats();
+        assertThat(stats.getHits()).isEqualTo(2);
+        assertThat(stats.getMisses()).isEqualTo(3);
+        assertThat(stats.getEvictions()).isEqualTo(1);
+        assertThat(stats.getWeight()).isEqualTo(8);
+    }
+
+    @Test
+    void invalidatesMatchingKeys() {
+        cache.get("a1", key -> "x");
+        cache.get("a2", key -> "y");
+        cache.get("b1", key -> "z");
+
+        cache.invalidateIf(key -> key.startsWith("a"));
+
+        assertThat(removed).containsExactlyInAnyOrder("a1", "a2");
+        assertThat(cache.stats().getInvalidations()).isEqualTo(2);
+        assertThat(cache.get("a1", key -> "new")).isEqualTo("new");
+    }
+
+    @Test
+    void bulkLoadsOnlyMissingKeys() {
+        cache.put("a", "1");
+
+        Map<String, String> values = cache.getAll(List.of("a", "b", "c"), missing -> {
+            assertThat(missing).containsExactly("b", "c");
+            return Map.of("b", "2", "c", "3");
+        });
+
+        assertThat(values).containsEntry("a", "1").containsEntry("b", "2").containsEntry("c", "3");
+        assertThat(cache.get("c", key -> "reloaded")).isEqualTo("3");
+        assertThat(cache.stats().getHits()).isEqualTo(2);
+    }
+
+    @Test
+    void concurrentMissesLoadOnce() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            results.add(executor.submit(() -> cache.get("k", key -> {
+                loads.incrementAndGet();
+                started.countDown();
+                await(release);
+                return "v";
+            })));
+            started.await(5, TimeUnit.SECONDS);
+            for (int i = 0; i < 3; i++) {
+                results.add(executor.submit(() -> cache.get("k", key -> {
+                    loads.incrementAndGet();
+                    return "other";
+                })));
+            }
+            while (cache.stats().getCoalescedLoads() < 3) {
+                Thread.onSpinWait();
+            }
+            release.countDown();
+            for (Future<String> result : results) {
+                assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("v");
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void doesNotStoreLoadInvalidatedWhileInFlight() {
+        String value = cache.get("k", key -> {
+            cache.invalidate("k");
+            return "stale";
+        });
+
+        assertThat(value).isEqualTo("stale");
+        assertThat(cache.get("k", key -> "fresh")).isEqualTo("fresh");
+    }
+
+    @Test
+    void notifiesStoreOnlyForValuesKeptInCache() {
+        List<String> stored = new ArrayList<>();
+        BoundedCache<String, String> listened = new BoundedCache<>(10, (key, value) -> value.length(),
+                (key, value) -> removed.add(key), (key, value) -> stored.add(key));
+
+        listened.get("a", key -> "aaaa");
+        listened.get("b", key -> {
+            listened.invalidate("b");
+            return "stale";
+        });
+        listened.get("c", key -> "c".repeat(11));
+
+        assertThat(stored).containsExactly("a");
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -6,26 +6,48 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
 import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.cache.CacheRegistry;
 import ru.yandex.practicum.filmorate.dal.mappers.DirectorRowMapper;
 import ru.yandex.practicum.filmorate.dal.mappers.FilmRowMapper;
 import ru.yandex.practicum.filmorate.dal.mappers.GenreRowMapper;
 import ru.yandex.practicum.filmorate.dal.mappers.MpaRowMapper;
+import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Director;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmPatch;
+import ru.yandex.practicum.filmorate.model.FilmProjection;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.LikesCountDrift;
 import ru.yandex.practicum.filmorate.model.MpaRating;
 
+import java.io.IOException;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 import static org.assertj.core.api.Assertions.*;
 
 @JdbcTest
 @AutoConfigureTestDatabase
-@Import({FilmDbStorage.class, FilmRowMapper.class, MpaRatingRepository.class, GenreRepository.class, MpaRowMapper.class, GenreRowMapper.class, DirectorRepository.class, DirectorRowMapper.class})
+@Import({FilmDbStorage.class, FilmRowMapper.class, MpaRatingRepository.class, GenreRepository.class, MpaRowMapper.class, GenreRowMapper.class, DirectorRepository.class, DirectorRowMapper.class, CacheRegistry.class, LikeWriteQueue.class, StatementCountingConfig.class})
 class FilmDbStorageTest {
+    private static final int HYDRATED_LIST_STATEMENTS = 3;
 
     @Autowired
     private FilmDbStorage filmStorage;
 
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private DirectorRepository directorRepository;
+
+    @Autowired
+    private StatementCountingConfig.StatementCounter statementCounter;
+
     private Film testFilm;
 
     @BeforeEach
@@ -60,6 +82,73 @@ class FilmDbStorageTest {
         assertThat(updatedFilm.getDescription()).isEqualTo("Updated Description");
     }
 
+    @Test
+    void updateFilmWritesOnlyChangedAssociations() {
+        testFilm.setGenres(new LinkedHashSet<>(List.of(new Genre(1L, null), new Genre(2L, null))));
+        Film addedFilm = filmStorage.addFilm(testFilm);
+
+        addedFilm.setGenres(new LinkedHashSet<>(List.of(new Genre(2L, null), new Genre(3L, null))));
+        statementCounter.reset();
+        filmStorage.updateFilm(addedFilm);
+        assertThat(statementCounter.get()).isEqualTo(4);
+
+        assertThat(filmStorage.getFilmById(addedFilm.getId()).getGenres())
+                .extracting(Genre::getId)
+                .containsExactly(2L, 3L);
+
+        statementCounter.reset();
+        filmStorage.updateFilm(addedFilm);
+        assertThat(statementCounter.get()).isEqualTo(2);
+    }
+
+    @Test
+    void patchFilmUpdatesOnlyProvidedFields() {
+        testFilm.setGenres(new LinkedHashSet<>(List.of(new Genre(1L, null))));
+        Long filmId = filmStorage.addFilm(testFilm).getId();
+
+        FilmPatch patch = new FilmPatch();
+        patch.setId(filmId);
+        patch.setDescription("Patched Description");
+        Film patchedFilm = filmStorage.patchFilm(patch);
+
+        assertThat(patchedFilm)
+                .hasFieldOrPropertyWithValue("name", "Test Film")
+                .hasFieldOrPropertyWithValue("description", "Patched Description")
+                .hasFieldOrPropertyWithValue("duration", 120);
+        assertThat(patchedFilm.getGenres()).extracting(Genre::getId).containsExactly(1L);
+
+        patch.setDescription(null);
+        patch.setGenres(Set.of());
+        assertThat(filmStorage.patchFilm(patch).getGenres()).isEmpty();
+
+        patch.setId(Long.MAX_VALUE);
+        assertThatThrownBy(() -> filmStorage.patchFilm(patch)).isInstanceOf(NotFoundException.class);
+    }
+
+    @Test
+    void addFilmsInsertsInBatches() {
+        List<Film> films = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Film film = new Film();
+            film.setName("Imported " + i);
+            film.setDescription("Description " + i);
+            film.setReleaseDate(LocalDate.of(2005, 6, 19));
+            film.setDuration(100);
+            film.setMpa(new MpaRating(1L, null));
+            film.setGenres(new LinkedHashSet<>(List.of(new Genre(1L, null), new Genre(2L, null))));
+            films.add(filmStorage.prepareFilm(film));
+        }
+
+        statementCounter.reset();
+        filmStorage.addFilms(films, 2);
+        assertThat(statementCounter.get()).isEqualTo(3);
+
+        assertThat(films).extracting(Film::getId).doesNotContainNull().doesNotHaveDuplicates();
+        assertThat(filmStorage.getFilmById(films.get(2).getId()).getGenres())
+                .extracting(Genre::getId)
+                .containsExactly(1L, 2L);
+    }
+
     @Test
     void getPopularFilms() {
         Film film1 = filmStorage.addFilm(testFilm);
@@ -72,8 +161,140 @@ class FilmDbStorageTest {
         film2.setMpa(new MpaRating(2L, null));
         film2 = filmStorage.addFilm(film2);
 
-        List<Film> popularFilms = filmStorage.getPopularFilms(2, null, null);
+        List<Long> popularFilmIds = filmStorage.getPopularFilmIds(2, null, null);
+
+        assertThat(popularFilmIds).containsExactlyInAnyOrder(film1.getId(), film2.getId());
+    }
+
+    @Test
+    void listMethodsHydrateFilmsWithConstantStatementCount() throws IOException {
+        List<Long> filmIds = addFilmsWithGenresAndLikes(3);
+        filmStorage.getFilms();
+
+        statementCounter.reset();
+        List<Film> films = filmStorage.getFilms();
+        assertThat(statementCounter.get()).isEqualTo(HYDRATED_LIST_STATEMENTS);
+        assertThat(films).hasSize(3);
+        assertThat(films).allSatisfy(film -> {
+            assertThat(film.getMpa().getName()).isEqualTo("G");
+            assertThat(film.getGenres()).extracting(Genre::getId).containsExactly(1L, 2L);
+            assertThat(film.getLikes().size()).isEqualTo(2);
+        });
+
+        assertThat(filmStorage.getPopularFilmIds(null, 1L, 2005)).containsExactlyInAnyOrderElementsOf(filmIds);
+
+        statementCounter.reset();
+        assertThat(filmStorage.getFilmsByIds(filmIds, FilmProjection.FULL)).hasSize(3);
+        assertThat(statementCounter.get()).isEqualTo(HYDRATED_LIST_STATEMENTS);
+
+        statementCounter.reset();
+        Film film = filmStorage.getFilmById(filmIds.getFirst());
+        assertThat(statementCounter.get()).isEqualTo(HYDRATED_LIST_STATEMENTS);
+        assertThat(film.getLikes().size()).isEqualTo(2);
+
+        List<Film> streamed = new ArrayList<>();
+        statementCounter.reset();
+        filmStorage.streamFilms(FilmProjection.FULL, streamed::add);
+        assertThat(statementCounter.get()).isEqualTo(HYDRATED_LIST_STATEMENTS);
+        assertThat(streamed).extracting(Film::getId).containsExactlyElementsOf(filmIds);
+
+        statementCounter.reset();
+        List<Film> summaries = filmStorage.getFilmsByIds(filmIds, FilmProjection.SUMMARY);
+        assertThat(statementCounter.get()).isEqualTo(HYDRATED_LIST_STATEMENTS - 1);
+        assertThat(summaries).allSatisfy(summary -> {
+            assertThat(summary.getLikes()).isNull();
+            assertThat(summary.getLikesCount()).isEqualTo(2);
+        });
+    }
+
+    @Test
+    void directorsAreCachedAndWrittenThrough() {
+        Director director = directorRepository.addDirector(new Director(null, "Nolan"));
+        Film film = new Film();
+        film.setName("Directed");
+        film.setDescription("Description");
+        film.setReleaseDate(LocalDate.of(2005, 6, 19));
+        film.setDuration(100);
+        film.setMpa(new MpaRating(1L, null));
+        film.setDirectors(new LinkedHashSet<>(List.of(new Director(director.getId(), null))));
+
+        Long filmId = filmStorage.addFilm(film).getId();
+        assertThat(film.getDirectors()).extracting(Director::getName).containsExactly("Nolan");
+
+        statementCounter.reset();
+        filmStorage.getFilmById(filmId);
+        assertThat(statementCounter.get()).isEqualTo(HYDRATED_LIST_STATEMENTS + 1);
+
+        directorRepository.updateDirector(new Director(director.getId(), "Christopher Nolan"));
+        statementCounter.reset();
+        assertThat(filmStorage.getFilmById(filmId).getDirectors())
+                .extracting(Director::getName)
+                .containsExactly("Christopher Nolan");
+        assertThat(statementCounter.get()).isEqualTo(HYDRATED_LIST_STATEMENTS);
+
+        directorRepository.deleteDirector(director.getId());
+        assertThat(filmStorage.getFilmById(filmId).getDirectors()).isEmpty();
+    }
+
+    @Test
+    void bulkLikesSkipExistingRowsAndUpdateCounts() {
+        Long filmId = addFilmsWithGenresAndLikes(1).getFirst();
+        jdbc.update("INSERT INTO users(email, login, name, birthday) VALUES ('third@mail.ru', 'third', 'third', '2000-01-01')");
+        List<Long> userIds = jdbc.queryForList("SELECT user_id FROM users ORDER BY user_id", Long.class);
+
+        List<long[]> likes = userIds.stream().map(userId -> new long[]{filmId, userId}).toList();
+        List<long[]> newLikes = filmStorage.filterNewLikes(likes);
+        assertThat(newLikes).containsExactly(new long[]{filmId, userIds.getLast()});
+        assertThat(filmStorage.findExistingIds(List.of(filmId, Long.MAX_VALUE))).containsExactly(filmId);
+
+        filmStorage.applyLikeChanges(newLikes, List.of());
+        assertThat(likesCount(filmId)).isEqualTo(3);
+        assertThat(filmStorage.findLikesCountDrift()).isEmpty();
+    }
+
+    @Test
+    void likesCountIsMaintainedAndReconciled() {
+        Long filmId = addFilmsWithGenresAndLikes(1).getFirst();
+        Long userId = jdbc.queryForObject("SELECT MIN(user_id) FROM users", Long.class);
+        assertThat(likesCount(filmId)).isEqualTo(2);
+
+        filmStorage.removeLike(filmId, userId);
+        filmStorage.removeLike(filmId, userId);
+        assertThat(likesCount(filmId)).isEqualTo(1);
+        assertThat(filmStorage.findLikesCountDrift()).isEmpty();
+
+        jdbc.update("UPDATE films SET likes_count = 10 WHERE film_id = ?", filmId);
+        assertThat(filmStorage.findLikesCountDrift())
+                .containsExactly(new LikesCountDrift(filmId, 10, 1));
+
+        filmStorage.recalculateLikesCount(filmId);
+        assertThat(likesCount(filmId)).isEqualTo(1);
+        assertThat(filmStorage.findLikesCountDrift()).isEmpty();
+    }
+
+    private Integer likesCount(Long filmId) {
+        return jdbc.queryForObject("SELECT likes_count FROM films WHERE film_id = ?", Integer.class, filmId);
+    }
+
+    private List<Long> addFilmsWithGenresAndLikes(int count) {
+        jdbc.update("INSERT INTO users(email, login, name, birthday) VALUES ('first@mail.ru', 'first', 'first', '2000-01-01')");
+        jdbc.update("INSERT INTO users(email, login, name, birthday) VALUES ('second@mail.ru', 'second', 'second', '2000-01-01')");
+        List<Long> userIds = jdbc.queryForList("SELECT user_id FROM users ORDER BY user_id", Long.class);
 
-        assertThat(popularFilms).hasSize(2);
+        Set<Genre> genres = new LinkedHashSet<>(List.of(new Genre(1L, null), new Genre(2L, null)));
+        List<Long> filmIds = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Film film = new Film();
+            film.setName("Film " + i);
+            film.setDescription("Description " + i);
+            film.setReleaseDate(LocalDate.of(2005, 6, 19));
+            film.setDuration(100);
+            film.setMpa(new MpaRating(1L, null));
+            film.setGenres(new LinkedHashSet<>(genres));
+            Long filmId = filmStorage.addFilm(film).getId();
+            userIds.forEach(userId -> filmStorage.addLike(filmId, userId));
+            filmIds.add(filmId);
+        }
+        return filmIds;
     }
-}
\ No newline at end of file
+}
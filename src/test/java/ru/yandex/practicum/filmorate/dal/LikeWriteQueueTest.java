@@ -0,0 +1,123 @@
+package ru.yandex.practicum.filmorate.dal;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
+import ru.yandex.practicum.filmorate.exceptions.ServiceUnavailableException;
+import ru.yandex.practicum.filmorate.model.Event;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.LikeSet;
+import ru.yandex.practicum.filmorate.model.enums.EventOperation;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.*;
+
+class LikeWriteQueueTest {
+    private final LikeWriteQueue queue =
+            new LikeWriteQueue(true, 3, 100, Duration.ZERO, Duration.ofMillis(10));
+    private final AtomicInteger changes = new AtomicInteger();
+
+    @Test
+    void coalescesLikeAndUnlikeButKeepsEvents() throws InterruptedException {
+        submit(1L, 10L, EventOperation.ADD, false);
+        submit(1L, 10L, EventOperation.REMOVE, false);
+        submit(2L, 10L, EventOperation.ADD, false);
+
+        LikeWriteQueue.Batch batch = queue.take();
+
+        assertThat(batch.added()).containsExactly(new long[]{2L, 10L});
+        assertThat(batch.removed()).isEmpty();
+        assertThat(batch.events()).extracting(Event::getOperation)
+                .containsExactly(EventOperation.ADD, EventOperation.REMOVE, EventOperation.ADD);
+        assertThat(changes).hasValue(3);
+    }
+
+    @Test
+    void rejectsWhenFullAndWhenUnlikingMissingLike() {
+        assertThatThrownBy(() -> submit(1L, 10L, EventOperation.REMOVE, false))
+                .isInstanceOf(NotFoundException.class);
+
+        submit(1L, 10L, EventOperation.ADD, false);
+        submit(2L, 10L, EventOperation.ADD, false);
+        submit(3L, 10L, EventOperation.ADD, false);
+
+        assertThatThrownBy(() -> submit(4L, 10L, EventOperation.ADD, false))
+                .isInstanceOf(ServiceUnavailableException.class);
+    }
+
+    @Test
+    void overlaysQueuedLikesOnReads() {
+        submit(1L, 10L, EventOperation.ADD, false);
+        submit(1L, 20L, EventOperation.REMOVE, true);
+
+        Film full = film(LikeSet.of(20L, 30L), 2);
+        Film summary = film(null, 2);
+        queue.applyPending(List.of(full, summary));
+
+        assertThat(full.getLikes().toArray()).containsExactly(10L, 30L);
+        assertThat(full.getLikesCount()).isEqualTo(2);
+        assertThat(summary.getLikesCount()).isEqualTo(2);
+    }
+
+    @Test
+    void overlaysInFlightLikesOnSummaryReads() throws InterruptedException {
+        submit(1L, 10L, EventOperation.ADD, false);
+        submit(1L, 20L, EventOperation.ADD, false);
+        queue.take();
+        submit(1L, 30L, EventOperation.ADD, false);
+
+        Film full = film(LikeSet.of(), 0);
+        Film summary = film(null, 0);
+        queue.applyPending(List.of(full, summary));
+
+        assertThat(full.getLikes().toArray()).containsExactly(10L, 20L, 30L);
+        assertThat(full.getLikesCount()).isEqualTo(3);
+        assertThat(summary.getLikesCount()).isEqualTo(3);
+    }
+
+    @Test
+    void clearsWrittenBatchAndRestoresDroppedLikes() throws InterruptedException {
+        submit(1L, 10L, EventOperation.ADD, false);
+        submit(2L, 10L, EventOperation.ADD, false);
+        LikeWriteQueue.Batch batch = queue.take();
+        submit(2L, 10L, EventOperation.REMOVE, false);
+
+        List<String> restored = new ArrayList<>();
+        queue.complete(batch, List.of(new long[]{1L, 10L}, new long[]{2L, 10L}),
+                (filmId, userId, liked) -> restored.add(filmId + ":" + userId + ":" + liked));
+
+        assertThat(restored).containsExactly("1:10:false");
+        LikeWriteQueue.Batch next = queue.take();
+        assertThat(next.added()).isEmpty();
+        assertThat(next.removed()).isEmpty();
+        queue.complete(next, List.of(), (filmId, userId, liked) -> restored.add("unexpected"));
+        assertThat(queue.isIdle()).isTrue();
+    }
+
+    @Test
+    void discardsQueuedEventsOfDeletedFilm() throws InterruptedException {
+        submit(1L, 10L, EventOperation.ADD, false);
+        submit(2L, 10L, EventOperation.ADD, false);
+
+        queue.discardFilm(1L);
+
+        LikeWriteQueue.Batch batch = queue.take();
+        assertThat(batch.added()).containsExactly(new long[]{2L, 10L});
+        assertThat(batch.events()).extracting(Event::getEntityId).containsExactly(2L);
+    }
+
+    private void submit(Long filmId, Long userId, EventOperation operation, boolean stored) {
+        queue.submit(filmId, userId, operation, () -> stored, changes::incrementAndGet);
+    }
+
+    private static Film film(LikeSet likes, int likesCount) {
+        Film film = new Film();
+        film.setId(1L);
+        film.setLikes(likes);
+        film.setLikesCount(likesCount);
+        return film;
+    }
+}
@@ -6,11 +6,17 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
 import org.springframework.context.annotation.Import;
+import ru.yandex.practicum.filmorate.cache.CacheRegistry;
 import ru.yandex.practicum.filmorate.dal.mappers.*;
 import ru.yandex.practicum.filmorate.model.User;
 
+import java.io.IOException;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import static org.assertj.core.api.Assertions.*;
 
@@ -25,12 +31,18 @@ import static org.assertj.core.api.Assertions.*;
         MpaRowMapper.class,
         GenreRowMapper.class,
         DirectorRepository.class,
-        DirectorRowMapper.class})
+        DirectorRowMapper.class,
+        CacheRegistry.class,
+        LikeWriteQueue.class,
+        StatementCountingConfig.class})
 class UserDbStorageTest {
 
     @Autowired
     private UserDbStorage userStorage;
 
+    @Autowired
+    private StatementCountingConfig.StatementCounter statementCounter;
+
     private User testUser;
 
     @BeforeEach
@@ -74,8 +86,70 @@ class UserDbStorageTest {
         user2 = userStorage.addUser(user2);
 
         userStorage.addFriend(user1.getId(), user2.getId());
-        List<User> friends = userStorage.getFriends(user1.getId());
+        List<Long> friendIds = new ArrayList<>();
+        userStorage.forEachFriendship((userId, friendId) -> {
+            if (userId.equals(user1.getId())) {
+                friendIds.add(friendId);
+            }
+        });
+
+        assertThat(friendIds).containsExactly(user2.getId());
+        assertThat(userStorage.getUsersByIds(new long[]{user2.getId(), user1.getId()}))
+                .extracting(User::getId)
+                .containsExactly(user2.getId(), user1.getId());
+    }
+
+    @Test
+    void loadsFriendsForWholeResultInOneQuery() throws IOException {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            User user = new User();
+            user.setEmail("user" + i + "@mail.ru");
+            user.setLogin("login" + i);
+            user.setBirthday(LocalDate.of(2005, 6, 19));
+            users.add(userStorage.addUser(user));
+        }
+        userStorage.addFriend(users.get(0).getId(), users.get(1).getId());
+        userStorage.addFriend(users.get(1).getId(), users.get(0).getId());
+        userStorage.addFriend(users.get(2).getId(), users.get(0).getId());
+
+        statementCounter.reset();
+        List<User> loaded = userStorage.getUsers();
+        assertThat(statementCounter.get()).isEqualTo(2);
+        Map<Long, User> loadedById = loaded.stream().collect(Collectors.toMap(User::getId, Function.identity()));
+        assertThat(loadedById).hasSize(3);
+        assertThat(loadedById.get(users.get(0).getId()).getFriends())
+                .containsEntry(users.get(1).getId(), User.FriendshipStatus.CONFIRMED);
+        assertThat(loadedById.get(users.get(2).getId()).getFriends())
+                .containsEntry(users.get(0).getId(), User.FriendshipStatus.UNCONFIRMED);
+
+        List<User> streamed = new ArrayList<>();
+        statementCounter.reset();
+        userStorage.streamUsers(streamed::add);
+        assertThat(statementCounter.get()).isEqualTo(2);
+        assertThat(streamed).extracting(User::getId).containsExactlyElementsOf(users.stream().map(User::getId).toList());
+
+        statementCounter.reset();
+        User slim = userStorage.getSlimUserById(users.get(0).getId());
+        assertThat(statementCounter.get()).isEqualTo(1);
+        assertThat(slim.getFriends()).isEmpty();
+    }
+
+    @Test
+    void getUsersPageContinuesAfterId() {
+        User user1 = userStorage.addUser(testUser);
+
+        User user2 = new User();
+        user2.setEmail("second@mail.ru");
+        user2.setLogin("secondLogin");
+        user2.setBirthday(LocalDate.of(2005, 6, 19));
+        user2 = userStorage.addUser(user2);
 
-        assertThat(friends).hasSize(1);
+        assertThat(userStorage.getUsersPage(0, 1))
+                .extracting(User::getId)
+                .containsExactly(user1.getId());
+        assertThat(userStorage.getUsersPage(user1.getId(), 10))
+                .extracting(User::getId)
+                .containsExactly(user2.getId());
     }
 }
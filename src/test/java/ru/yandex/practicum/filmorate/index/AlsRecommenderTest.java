@@ -0,0 +1,41 @@
+package ru.yandex.practicum.filmorate.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class AlsRecommenderTest {
+
+    @Test
+    void trainedFactorsRankCoLikedFilmFirst() {
+        AlsModel model = new AlsTrainer(8, 10, 0.1, 40, ForkJoinPool.commonPool()).train(Map.of(
+                1L, new long[]{1, 2, 3},
+                2L, new long[]{1, 2, 3, 4},
+                3L, new long[]{1, 5, 6, 7}));
+
+        float[] scores = model.scores(model.userIndex(1L), new ScalarFactorScorer());
+
+        assertThat(model.filmId(3)).isEqualTo(4L);
+        for (int film = 4; film < scores.length; film++) {
+            assertThat(scores[3]).isGreaterThan(scores[film]);
+        }
+    }
+
+    @Test
+    void selectedScorerMatchesScalarLoop() {
+        AlsModel model = new AlsTrainer(19, 2, 0.1, 40, ForkJoinPool.commonPool()).train(Map.of(
+                1L, new long[]{1, 2, 3},
+                2L, new long[]{2, 3, 4, 5}));
+
+        float[] scalar = model.scores(0, new ScalarFactorScorer());
+        float[] selected = model.scores(0, FactorScorers.create());
+
+        for (int film = 0; film < scalar.length; film++) {
+            assertThat(selected[film]).isCloseTo(scalar[film], within(1e-4f));
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package ru.yandex.practicum.filmorate.index;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.dal.DirectorRepository;
+import ru.yandex.practicum.filmorate.dal.FilmDbStorage;
+import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Suggestion;
+import ru.yandex.practicum.filmorate.model.enums.SearchType;
+import ru.yandex.practicum.filmorate.model.enums.SuggestionType;
+
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class FilmSearchIndexTest {
+    private PopularityLeaderboard leaderboard;
+    private FilmSearchIndex searchIndex;
+
+    @BeforeEach
+    void setUp() {
+        FilmDbStorage filmStorage = mock(FilmDbStorage.class);
+        when(filmStorage.getPopularityEntries()).thenReturn(List.of(
+                new PopularityEntry(1L, 1, 2000, new HashSet<>(), new HashSet<>()),
+                new PopularityEntry(2L, 9, 2000, new HashSet<>(), new HashSet<>()),
+                new PopularityEntry(3L, 5, 2000, new HashSet<>(), new HashSet<>(Set.of(10L)))));
+        when(filmStorage.getFilmTitles()).thenReturn(Map.of(
+                1L, "Ёлки",
+                2L, "Новые ёлки",
+                3L, "Matrix"));
+        when(filmStorage.getFilmDirectorIds()).thenReturn(Map.of(3L, new HashSet<>(Set.of(10L))));
+        DirectorRepository directorRepository = mock(DirectorRepository.class);
+        when(directorRepository.findAll()).thenReturn(List.of(new Director(10L, "Lana Wachowski")));
+
+        leaderboard = new PopularityLeaderboard(filmStorage);
+        leaderboard.rebuild();
+        searchIndex = new FilmSearchIndex(filmStorage, directorRepository, leaderboard);
+        searchIndex.rebuild();
+    }
+
+    @Test
+    void findsSubstringsIgnoringCaseAndYoRankedByPopularity() {
+        assertThat(searchIndex.search("ЕЛКИ", SearchType.TITLE)).containsExactly(2L, 1L);
+        assertThat(searchIndex.search("ки", SearchType.TITLE)).containsExactly(2L, 1L);
+        assertThat(searchIndex.search("wachow", SearchType.DIRECTOR)).containsExactly(3L);
+        assertThat(searchIndex.search("wachow", SearchType.TITLE)).isEmpty();
+        assertThat(searchIndex.search("ski", SearchType.BOTH)).containsExactly(3L);
+    }
+
+    @Test
+    void mutationsAreVisibleAndSurviveRebuild() {
+        Film film = new Film();
+        film.setId(1L);
+        film.setName("Matrix Reloaded");
+        film.getDirectors().add(new Director(10L, null));
+        searchIndex.upsertFilm(film);
+        searchIndex.upsertDirector(new Director(10L, "Lilly Wachowski"));
+
+        assertThat(searchIndex.search("matrix", SearchType.TITLE)).containsExactly(3L, 1L);
+        assertThat(searchIndex.search("lilly", SearchType.DIRECTOR)).containsExactly(3L, 1L);
+
+        searchIndex.removeDirector(10L);
+        assertThat(searchIndex.search("wachowski", SearchType.DIRECTOR)).isEmpty();
+
+        searchIndex.removeFilm(3L);
+        assertThat(searchIndex.search("matrix", SearchType.BOTH)).containsExactly(1L);
+    }
+
+    @Test
+    void suggestsTitlesAndDirectorsByPrefixRankedByPopularity() {
+        assertThat(searchIndex.suggest("Ё", 10))
+                .containsExactly(new Suggestion(SuggestionType.FILM, 1L, "Ёлки"));
+
+        Film film = new Film();
+        film.setId(4L);
+        film.setName("Lost");
+        searchIndex.upsertFilm(film);
+
+        assertThat(searchIndex.suggest("l", 10)).containsExactly(
+                new Suggestion(SuggestionType.DIRECTOR, 10L, "Lana Wachowski"),
+                new Suggestion(SuggestionType.FILM, 4L, "Lost"));
+        assertThat(searchIndex.suggest("l", 1)).hasSize(1);
+
+        searchIndex.removeFilm(4L);
+        assertThat(searchIndex.suggest("lo", 10)).isEmpty();
+        assertThat(searchIndex.suggest("lana w", 10)).hasSize(1);
+    }
+
+    @Test
+    void suggestionsFollowLikeChanges() {
+        for (long filmId = 100; filmId < 125; filmId++) {
+            Film film = new Film();
+            film.setId(filmId);
+            film.setName("Sequel " + filmId);
+            film.setReleaseDate(LocalDate.of(2000, 1, 1));
+            leaderboard.upsertFilm(film);
+            searchIndex.upsertFilm(film);
+        }
+
+        leaderboard.changeLikes(124L, 3);
+        assertThat(searchIndex.suggest("sequel", 1))
+                .containsExactly(new Suggestion(SuggestionType.FILM, 124L, "Sequel 124"));
+
+        leaderboard.changeLikes(124L, -3);
+        assertThat(searchIndex.suggest("sequel", PrefixTrie.TOP_SIZE))
+                .extracting(Suggestion::getId)
+                .doesNotContain(124L);
+    }
+
+    @Test
+    void fuzzySearchToleratesTypos() {
+        assertThat(searchIndex.searchFuzzy("matrx", SearchType.TITLE)).containsExactly(3L);
+        assertThat(searchIndex.searchFuzzy("ёлка", SearchType.TITLE)).containsExactly(2L, 1L);
+        assertThat(searchIndex.searchFuzzy("новые елкт", SearchType.TITLE)).containsExactly(2L);
+        assertThat(searchIndex.searchFuzzy("wachovski", SearchType.DIRECTOR)).containsExactly(3L);
+        assertThat(searchIndex.searchFuzzy("wachovski", SearchType.TITLE)).isEmpty();
+        assertThat(searchIndex.searchFuzzy("mtarix", SearchType.BOTH)).containsExactly(3L);
+    }
+}
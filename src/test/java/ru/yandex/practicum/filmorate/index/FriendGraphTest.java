@@ -0,0 +1,105 @@
+package ru.yandex.practicum.filmorate.index;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.dal.UserDbStorage;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.util.function.BiConsumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+class FriendGraphTest {
+    private FriendGraph friendGraph;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        UserDbStorage userStorage = mock(UserDbStorage.class);
+        long[][] friendships = {{1, 2}, {1, 3}, {1, 4}, {2, 1}, {2, 3}, {3, 4}};
+        doAnswer(invocation -> {
+            BiConsumer<Long, Long> consumer = invocation.getArgument(0);
+            for (long[] friendship : friendships) {
+                consumer.accept(friendship[0], friendship[1]);
+            }
+            return null;
+        }).when(userStorage).forEachFriendship(any());
+        friendGraph = new FriendGraph(userStorage, 1000, 100000);
+        friendGraph.rebuild();
+    }
+
+    @Test
+    void answersFriendsCommonFriendsAndStatus() {
+        assertThat(friendGraph.getFriendIds(1L)).containsExactly(2L, 3L, 4L);
+        assertThat(friendGraph.getCommonFriendIds(1L, 2L)).containsExactly(3L);
+        assertThat(friendGraph.getFriendshipStatus(1L, 2L)).contains(User.FriendshipStatus.CONFIRMED);
+        assertThat(friendGraph.getFriendshipStatus(1L, 3L)).contains(User.FriendshipStatus.UNCONFIRMED);
+        assertThat(friendGraph.getFriendshipStatus(3L, 1L)).isEmpty();
+    }
+
+    @Test
+    void appliesDeltaOnTopOfBase() {
+        friendGraph.addFriend(3L, 1L);
+        friendGraph.removeFriend(1L, 2L);
+        friendGraph.addFriend(5L, 1L);
+
+        assertThat(friendGraph.getFriendIds(1L)).containsExactly(3L, 4L);
+        assertThat(friendGraph.getFriendIds(5L)).containsExactly(1L);
+        assertThat(friendGraph.getFriendshipStatus(1L, 3L)).contains(User.FriendshipStatus.CONFIRMED);
+        assertThat(friendGraph.getFriendshipStatus(2L, 1L)).contains(User.FriendshipStatus.UNCONFIRMED);
+    }
+
+    @Test
+    void suggestsFriendsOfFriendsByMutualCount() {
+        friendGraph.addFriend(4L, 5L);
+        friendGraph.addFriend(3L, 5L);
+        friendGraph.addFriend(2L, 6L);
+
+        assertThat(friendGraph.suggestFriends(1L, 10))
+                .containsExactly(new FriendCandidate(5L, 2), new FriendCandidate(6L, 1));
+        assertThat(friendGraph.suggestFriends(1L, 1)).containsExactly(new FriendCandidate(5L, 2));
+    }
+
+    @Test
+    void stopsTraversalWhenWorkBudgetIsSpent() {
+        FriendGraph bounded = new FriendGraph(mock(UserDbStorage.class), 1000, 2);
+        bounded.addFriend(1L, 2L);
+        bounded.addFriend(1L, 3L);
+        bounded.addFriend(2L, 4L);
+        bounded.addFriend(2L, 5L);
+        bounded.addFriend(3L, 6L);
+        bounded.addFriend(3L, 7L);
+        bounded.addFriend(3L, 8L);
+
+        assertThat(bounded.suggestFriends(1L, 10))
+                .extracting(FriendCandidate::userId)
+                .containsExactly(4L, 5L);
+    }
+
+    @Test
+    void hidesDeletedUsers() {
+        friendGraph.removeUser(3L);
+
+        assertThat(friendGraph.getFriendIds(1L)).containsExactly(2L, 4L);
+        assertThat(friendGraph.getCommonFriendIds(1L, 2L)).isEmpty();
+        assertThat(friendGraph.getFriendIds(3L)).isEmpty();
+        assertThat(friendGraph.getFriendships(2L)).containsOnlyKeys(1L);
+    }
+
+    @Test
+    void keepsEdgesAcrossCompaction() {
+        friendGraph.removeUser(4L);
+        for (long userId = 100; userId < 1200; userId++) {
+            friendGraph.addFriend(userId, 1L);
+        }
+        friendGraph.addFriend(1L, 150L);
+
+        assertThat(friendGraph.getFriendIds(1L)).containsExactly(2L, 3L, 150L);
+        assertThat(friendGraph.getFriendIds(1199L)).containsExactly(1L);
+        assertThat(friendGraph.getFriendIds(4L)).isEmpty();
+        assertThat(friendGraph.getFriendshipStatus(1L, 150L)).contains(User.FriendshipStatus.CONFIRMED);
+    }
+}
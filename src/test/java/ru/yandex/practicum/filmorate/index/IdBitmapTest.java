@@ -0,0 +1,53 @@
+package ru.yandex.practicum.filmorate.index;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class IdBitmapTest {
+    private final IdBitmap bitmap = new IdBitmap();
+
+    @Test
+    void coversIdsOnlyAfterRebuild() {
+        assertThat(bitmap.covers(1)).isFalse();
+
+        bitmap.rebuild(sink -> {
+            sink.accept(1);
+            sink.accept(3);
+        });
+
+        assertThat(bitmap.covers(1)).isTrue();
+        assertThat(bitmap.covers(Long.MAX_VALUE)).isFalse();
+        assertThat(bitmap.contains(1)).isTrue();
+        assertThat(bitmap.contains(2)).isFalse();
+        assertThat(bitmap.size()).isEqualTo(2);
+    }
+
+    @Test
+    void keepsChangesMadeDuringRebuild() {
+        bitmap.rebuild(sink -> {
+            sink.accept(1);
+            sink.accept(2);
+            bitmap.add(5);
+            bitmap.remove(2);
+        });
+
+        assertThat(bitmap.contains(1)).isTrue();
+        assertThat(bitmap.contains(2)).isFalse();
+        assertThat(bitmap.contains(5)).isTrue();
+    }
+
+    @Test
+    void keepsPreviousStateWhenRebuildFails() {
+        bitmap.rebuild(sink -> sink.accept(1));
+
+        assertThatThrownBy(() -> bitmap.rebuild(sink -> {
+            sink.accept(2);
+            throw new IllegalStateException("boom");
+        })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(bitmap.contains(1)).isTrue();
+        assertThat(bitmap.contains(2)).isFalse();
+    }
+}
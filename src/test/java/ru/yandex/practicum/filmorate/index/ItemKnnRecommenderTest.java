@@ -0,0 +1,79 @@
+package ru.yandex.practicum.filmorate.index;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.dal.FilmDbStorage;
+
+import java.time.Duration;
+import java.util.function.BiConsumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+class ItemKnnRecommenderTest {
+    private LikeMatrix likeMatrix;
+    private FilmCoOccurrence coOccurrence;
+    private ItemKnnRecommender recommender;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        FilmDbStorage filmStorage = mock(FilmDbStorage.class);
+        long[][] likes = {
+                {1, 1}, {2, 1}, {3, 1},
+                {1, 2}, {2, 2}, {3, 2}, {4, 2},
+                {1, 3}, {5, 3}, {6, 3}, {7, 3}};
+        doAnswer(invocation -> {
+            BiConsumer<Long, Long> consumer = invocation.getArgument(0);
+            for (long[] like : likes) {
+                consumer.accept(like[0], like[1]);
+            }
+            return null;
+        }).when(filmStorage).forEachLike(any());
+        likeMatrix = new LikeMatrix(filmStorage);
+        likeMatrix.rebuild();
+        coOccurrence = new FilmCoOccurrence(likeMatrix, Duration.ZERO, 100);
+        coOccurrence.subscribe();
+        coOccurrence.recompute();
+        recommender = new ItemKnnRecommender(likeMatrix, coOccurrence, 10);
+    }
+
+    @Test
+    void recommendsFilmsMostSimilarToLikedOnesFirst() {
+        assertThat(recommender.recommend(1L, 10)).containsExactly(4L, 5L, 6L, 7L);
+        assertThat(recommender.recommend(1L, 2)).containsExactly(4L, 5L);
+    }
+
+    @Test
+    void incrementalUpdatesMatchFullRecompute() {
+        likeMatrix.addLike(4L, 1L);
+        likeMatrix.removeUser(3L);
+
+        assertThat(recommender.recommend(1L, 10)).isEmpty();
+        assertThat(likeMatrix.getUserFilms(1L)).containsExactly(1L, 2L, 3L, 4L);
+
+        likeMatrix.removeLike(1L, 2L);
+        likeMatrix.addLike(8L, 2L);
+        coOccurrence.applyPending();
+        assertThat(coOccurrence.recompute()).isZero();
+        assertThat(recommender.recommend(1L, 10)).containsExactly(8L);
+    }
+
+    @Test
+    void ignoresUsersAboveLikeLimit() {
+        FilmCoOccurrence capped = new FilmCoOccurrence(likeMatrix, Duration.ZERO, 3);
+        capped.subscribe();
+        capped.recompute();
+        ItemKnnRecommender cappedRecommender = new ItemKnnRecommender(likeMatrix, capped, 10);
+
+        assertThat(cappedRecommender.recommend(1L, 10)).isEmpty();
+
+        likeMatrix.removeLike(4L, 2L);
+        likeMatrix.addLike(9L, 1L);
+        capped.applyPending();
+        assertThat(capped.recompute()).isZero();
+        assertThat(cappedRecommender.recommend(3L, 10)).containsExactly(2L, 3L);
+    }
+}
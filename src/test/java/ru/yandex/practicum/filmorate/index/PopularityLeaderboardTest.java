@@ -0,0 +1,103 @@
+package ru.yandex.practicum.filmorate.index;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.dal.FilmDbStorage;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PopularityLeaderboardTest {
+    private FilmDbStorage filmStorage;
+    private PopularityLeaderboard leaderboard;
+
+    @BeforeEach
+    void setUp() {
+        filmStorage = mock(FilmDbStorage.class);
+        when(filmStorage.getPopularityEntries()).thenReturn(List.of(
+                new PopularityEntry(1L, 5, 2000, new HashSet<>(Set.of(1L)), new HashSet<>(Set.of(10L))),
+                new PopularityEntry(2L, 7, 2001, new HashSet<>(Set.of(1L, 2L)), new HashSet<>()),
+                new PopularityEntry(3L, 5, 2000, new HashSet<>(Set.of(2L)), new HashSet<>(Set.of(10L)))));
+        leaderboard = new PopularityLeaderboard(filmStorage);
+        leaderboard.rebuild();
+    }
+
+    @Test
+    void ordersByLikesThenById() {
+        assertThat(leaderboard.getTop(null, null, null)).containsExactly(2L, 1L, 3L);
+        assertThat(leaderboard.getTop(2, null, null)).containsExactly(2L, 1L);
+        assertThat(leaderboard.getTop(null, 1L, null)).containsExactly(2L, 1L);
+        assertThat(leaderboard.getTop(null, null, 2000)).containsExactly(1L, 3L);
+        assertThat(leaderboard.getTop(null, 2L, 2000)).containsExactly(3L);
+        assertThat(leaderboard.getTopByDirector(10L)).containsExactly(1L, 3L);
+    }
+
+    @Test
+    void replaysChangesMadeWhileRebuilding() {
+        when(filmStorage.getPopularityEntries()).thenAnswer(invocation -> {
+            leaderboard.changeLikes(1L, 10);
+            leaderboard.removeFilm(3L);
+            return List.of(
+                    new PopularityEntry(1L, 5, 2000, new HashSet<>(Set.of(1L)), new HashSet<>()),
+                    new PopularityEntry(3L, 5, 2000, new HashSet<>(Set.of(2L)), new HashSet<>()));
+        });
+
+        leaderboard.rebuild();
+
+        assertThat(leaderboard.getTop(null, null, null)).containsExactly(1L);
+        assertThat(leaderboard.getLikes(1L)).isEqualTo(15);
+    }
+
+    @Test
+    void doesNotCountLikesTwiceWhenSnapshotAlreadyHasThem() {
+        when(filmStorage.getPopularityEntries()).thenAnswer(invocation -> {
+            leaderboard.changeLikes(1L, 1);
+            return List.of(new PopularityEntry(1L, 6, 2000, new HashSet<>(Set.of(1L)), new HashSet<>()));
+        });
+
+        leaderboard.rebuild();
+
+        assertThat(leaderboard.getLikes(1L)).isEqualTo(6);
+    }
+
+    @Test
+    void likesChangeReordersFilm() {
+        leaderboard.changeLikes(3L, 3);
+
+        assertThat(leaderboard.getTop(null, null, null)).containsExactly(3L, 2L, 1L);
+        assertThat(leaderboard.getTopByDirector(10L)).containsExactly(3L, 1L);
+        assertThat(leaderboard.getLikes(3L)).isEqualTo(8);
+    }
+
+    @Test
+    void filmUpdateMovesFilmBetweenPartitions() {
+        Film film = new Film();
+        film.setId(1L);
+        film.setReleaseDate(LocalDate.of(2001, 1, 1));
+        film.getGenres().add(new Genre(2L, null));
+
+        leaderboard.upsertFilm(film);
+
+        assertThat(leaderboard.getTop(null, 1L, null)).containsExactly(2L);
+        assertThat(leaderboard.getTop(null, null, 2001)).containsExactly(2L, 1L);
+        assertThat(leaderboard.getTopByDirector(10L)).containsExactly(3L);
+        assertThat(leaderboard.getLikes(1L)).isEqualTo(5);
+    }
+
+    @Test
+    void consistencyCheckComparesWithDatabase() {
+        when(filmStorage.getPopularFilmIds(null, null, null)).thenReturn(List.of(2L, 1L, 3L));
+        assertThat(leaderboard.checkConsistency(null, null, null)).isTrue();
+
+        leaderboard.removeFilm(1L);
+        assertThat(leaderboard.checkConsistency(null, null, null)).isFalse();
+    }
+}
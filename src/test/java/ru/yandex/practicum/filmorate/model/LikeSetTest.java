@@ -0,0 +1,48 @@
+package ru.yandex.practicum.filmorate.model;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LikeSetTest {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void keepsIdsSortedAndUnique() {
+        LikeSet likes = LikeSet.of(5, 1, 3, 1);
+
+        assertThat(likes.add(4)).isTrue();
+        assertThat(likes.add(3)).isFalse();
+        assertThat(likes.remove(1)).isTrue();
+        assertThat(likes.remove(2)).isFalse();
+
+        assertThat(likes.toArray()).containsExactly(3, 4, 5);
+        assertThat(likes.contains(4)).isTrue();
+        assertThat(likes.contains(1)).isFalse();
+    }
+
+    @Test
+    void intersectsSetsOfDifferentSizes() {
+        LikeSet small = LikeSet.of(3, 40, 77, 1000);
+        LikeSet large = LikeSet.of(LongStream.range(0, 500).map(id -> id * 2 + 1).toArray());
+        LikeSet other = LikeSet.of(3, 77, 999, 1000);
+
+        assertThat(LikeSet.intersect(List.of(large, small, other))).containsExactly(3, 77);
+        assertThat(LikeSet.intersect(List.of(small, LikeSet.of()))).isEmpty();
+        assertThat(LikeSet.intersect(List.of())).isEmpty();
+    }
+
+    @Test
+    void serializesAsPlainJsonArray() throws Exception {
+        LikeSet likes = LikeSet.of(3, 1, 2);
+
+        String json = objectMapper.writeValueAsString(likes);
+
+        assertThat(json).isEqualTo("[1,2,3]");
+        assertThat(objectMapper.readValue("[3,1,2,2]", LikeSet.class)).isEqualTo(likes);
+    }
+}
@@ -0,0 +1,106 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.dal.FilmDbStorage;
+import ru.yandex.practicum.filmorate.dal.UserDbStorage;
+import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.function.LongConsumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ExistenceServiceTest {
+    private static final long BEYOND_INT = Integer.MAX_VALUE + 1L;
+
+    private UserDbStorage userStorage;
+    private FilmDbStorage filmStorage;
+    private ExistenceService existenceService;
+
+    @BeforeEach
+    void setUp() {
+        userStorage = mock(UserDbStorage.class);
+        filmStorage = mock(FilmDbStorage.class);
+        doAnswer(invocation -> {
+            LongConsumer consumer = invocation.getArgument(0);
+            Arrays.stream(new long[]{1, 2}).forEach(consumer);
+            return null;
+        }).when(userStorage).forEachUserId(any());
+        doAnswer(invocation -> {
+            LongConsumer consumer = invocation.getArgument(0);
+            consumer.accept(10);
+            return null;
+        }).when(filmStorage).forEachFilmId(any());
+        existenceService = new ExistenceService(userStorage, filmStorage);
+    }
+
+    @Test
+    void queriesStorageBeforeIndexIsLoaded() {
+        when(userStorage.existsById(1L)).thenReturn(true);
+        when(filmStorage.findExistingIds(List.of(10L, 11L))).thenReturn(Set.of(10L));
+
+        existenceService.requireUser(1L);
+        assertThatThrownBy(() -> existenceService.requireFilm(11L)).isInstanceOf(NotFoundException.class);
+        assertThat(existenceService.findExistingFilms(List.of(10L, 11L))).containsExactly(10L);
+
+        verify(userStorage).existsById(1L);
+        verify(filmStorage).existsById(11L);
+    }
+
+    @Test
+    void answersFromIndexOnceLoaded() {
+        existenceService.rebuild();
+        existenceService.userAdded(3L);
+        existenceService.filmRemoved(10L);
+
+        existenceService.requireUser(3L);
+        assertThatThrownBy(() -> existenceService.requireUser(4L)).isInstanceOf(NotFoundException.class);
+        assertThatThrownBy(() -> existenceService.requireFilm(10L)).isInstanceOf(NotFoundException.class);
+
+        verify(userStorage, never()).existsById(any());
+        verify(filmStorage, never()).existsById(any());
+    }
+
+    @Test
+    void queriesStorageForIdsBeyondIndexRange() {
+        existenceService.rebuild();
+        when(userStorage.existsById(BEYOND_INT)).thenReturn(true);
+
+        existenceService.requireUser(BEYOND_INT);
+
+        verify(userStorage).existsById(BEYOND_INT);
+    }
+
+    @Test
+    void findsExistingIdsQueryingOnlyUncoveredOnes() {
+        existenceService.rebuild();
+        when(userStorage.findExistingIds(List.of(BEYOND_INT))).thenReturn(Set.of(BEYOND_INT));
+
+        assertThat(existenceService.findExistingUsers(Arrays.asList(1L, 5L, null, BEYOND_INT)))
+                .containsExactlyInAnyOrder(1L, BEYOND_INT);
+
+        verify(userStorage).findExistingIds(List.of(BEYOND_INT));
+    }
+
+    @Test
+    void requireUsersReportsFirstMissingUser() {
+        existenceService.rebuild();
+
+        existenceService.requireUsers(List.of(1L, 2L));
+        assertThatThrownBy(() -> existenceService.requireUsers(List.of(1L, 5L, 6L)))
+                .isInstanceOf(NotFoundException.class)
+                .hasMessage("Пользователь с id 5 не найден");
+
+        verify(userStorage, never()).findExistingIds(any());
+    }
+}